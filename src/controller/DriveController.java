@@ -1,24 +1,28 @@
 package controller;
 
 import core.EventController;
+import core.SensorFrame;
+import core.SensorPoller;
 import event.events.ButtonEvent;
-import event.events.JoystickEvent;
 import event.listeners.ButtonListener;
-import event.listeners.GRTJoystickListener;
+import event.listeners.SensorFrameListener;
 import mechanism.GRTDriveTrain;
 import sensor.GRTJoystick;
 
 /**
  * Robot base driver.
  *
- * Operates for any DriverStation.
+ * Operates for any DriverStation. Reads both joysticks from the same sensor
+ * frame, so the drivetrain is commanded once per poll with a consistent pair
+ * of stick positions.
  *
  * @author andrew, keshav
  */
-public class DriveController extends EventController implements GRTJoystickListener, ButtonListener {
+public class DriveController extends EventController implements SensorFrameListener, ButtonListener {
 
     //sensor
     GRTJoystick left, right;
+    private final SensorPoller poller;
     
     //actuator
     private final GRTDriveTrain dt;
@@ -32,49 +36,43 @@ public class DriveController extends EventController implements GRTJoystickListe
     /**
      * Creates a new driving controller.
      * 
-     * @param base robot base to drive
-     * @param ds driver station to control with
-     * @param name name of controller
+     * @param dt robot base to drive
+     * @param leftStick joystick controlling the left side
+     * @param rightStick joystick controlling the right side
+     * @param poller poller that polls both joysticks
      */
-    public DriveController(GRTDriveTrain dt, GRTJoystick leftStick, GRTJoystick rightStick) {
+    public DriveController(GRTDriveTrain dt, GRTJoystick leftStick,
+            GRTJoystick rightStick, SensorPoller poller) {
         super("Driving Controller");
         this.dt = dt;
         
         this.left = leftStick;
         this.right = rightStick;
+        this.poller = poller;
     }
 
     protected void startListening() {
         logInfo("Start listening to joys");
-        left.addJoystickListener(this);
+        poller.addFrameListener(this);
         left.addButtonListener(this);
-        
-        right.addJoystickListener(this);
         right.addButtonListener(this);        
     }
 
     protected void stopListening() {
-        left.removeJoystickListener(this);
+        poller.removeFrameListener(this);
         left.removeButtonListener(this);
-        
-        right.removeJoystickListener(this);
         right.removeButtonListener(this);        
     }
 
-    public void XAxisMoved(JoystickEvent e) {
-    }
+    public void frameUpdated(SensorFrame frame) {
+        double newLeft = -frame.getState(left, GRTJoystick.KEY_Y);
+        double newRight = -frame.getState(right, GRTJoystick.KEY_Y);
 
-    public void YAxisMoved(JoystickEvent e) {
-        if ( e.getSource() == left ){
-            leftVelocity = -e.getData();
-        } else if ( e.getSource() == right ){
-            rightVelocity = -e.getData();
+        if (newLeft != leftVelocity || newRight != rightVelocity) {
+            leftVelocity = newLeft;
+            rightVelocity = newRight;
+            dt.setMotorSpeeds(leftVelocity, rightVelocity);
         }
-
-        dt.setMotorSpeeds(leftVelocity, rightVelocity);
-    }
-
-    public void AngleChanged(JoystickEvent e) {
     }
 
     public void buttonPressed(ButtonEvent e) {
@@ -2,16 +2,15 @@ package controller;
 
 import core.EventController;
 import core.GRTConstants;
-import edu.wpi.first.wpilibj.Timer;
+import core.GRTLoggedProcess;
+import core.Sensor;
+import core.ThreadRegistry;
 import event.events.ButtonEvent;
-import event.events.JoystickEvent;
 import event.events.PotentiometerEvent;
-import event.events.XboxJoystickEvent;
 import event.listeners.ButtonListener;
 import event.listeners.ConstantUpdateListener;
-import event.listeners.GRTJoystickListener;
 import event.listeners.PotentiometerListener;
-import event.listeners.XboxJoystickListener;
+import event.listeners.SensorSubscriber;
 import macro.MacroDrive;
 import macro.MacroTurn;
 import mechanism.Belts;
@@ -28,7 +27,7 @@ import sensor.GRTXboxJoystick;
  *
  * @author Calvin, agd
  */
-public class MechController extends EventController implements GRTJoystickListener, XboxJoystickListener, PotentiometerListener, ButtonListener,
+public class MechController extends EventController implements PotentiometerListener, ButtonListener,
         ConstantUpdateListener {
 
     private GRTJoystick leftJoy;
@@ -41,22 +40,21 @@ public class MechController extends EventController implements GRTJoystickListen
     private GRTDriveTrain dt;
     private GRTGyro gyro;
 
-    private double shootingSpeed;
+    //Constants, rewritten by updateConstants() on the reload thread
+    private volatile double shootingSpeed;
 
-    private double shooterPresetY;
-    private double shooterPresetB;
-    private double shooterDown;
+    private volatile double shooterPresetY;
+    private volatile double shooterPresetB;
+    private volatile double shooterDown;
 
-    private double turningDivider;
+    private volatile double turningDivider;
     private double storedAngle;
 
     private int padPosition = 0; //-1 for left, 1 for right, 0 for center
     private double DEG_INCREMENT = 0.75;
 
-    private boolean canShoot = true;
     private boolean xBoxBeltsRunning = false;
     private boolean joystickBeltsRunning = false;
-    private double shotDelay = 0.5;
     
     private MacroTurn test45Turn;
     private MacroTurn test180Turn;
@@ -64,6 +62,8 @@ public class MechController extends EventController implements GRTJoystickListen
     private MacroDrive test2Drive;
     private MacroDrive testn2Drive;
 
+    private Thread reloader = null;
+
     public MechController(GRTJoystick leftJoy, GRTJoystick rightJoy,
             GRTXboxJoystick secondary,
             Shooter shooter, ExternalPickup pickerUpper,
@@ -95,25 +95,25 @@ public class MechController extends EventController implements GRTJoystickListen
     }
 
     protected void startListening() {
-        leftJoy.addJoystickListener(this);
         leftJoy.addButtonListener(this);
-
-        rightJoy.addJoystickListener(this);
         rightJoy.addButtonListener(this);
 
-        secondary.addJoystickListener(this);
         secondary.addButtonListener(this);
+        secondary.subscribe(GRTXboxJoystick.KEY_LEFT_Y, leftYAxis);
+        secondary.subscribe(GRTXboxJoystick.KEY_RIGHT_Y, rightYAxis);
+        secondary.subscribe(GRTXboxJoystick.KEY_PAD, pad);
+        secondary.subscribe(GRTXboxJoystick.KEY_TRIGGER, trigger);
     }
 
     protected void stopListening() {
-        leftJoy.removeJoystickListener(this);
         leftJoy.removeButtonListener(this);
-
-        rightJoy.removeJoystickListener(this);
         rightJoy.removeButtonListener(this);
 
-        secondary.removeJoystickListener(this);
         secondary.removeButtonListener(this);
+        secondary.unsubscribe(GRTXboxJoystick.KEY_LEFT_Y, leftYAxis);
+        secondary.unsubscribe(GRTXboxJoystick.KEY_RIGHT_Y, rightYAxis);
+        secondary.unsubscribe(GRTXboxJoystick.KEY_PAD, pad);
+        secondary.unsubscribe(GRTXboxJoystick.KEY_TRIGGER, trigger);
 
 
         //Set the flywheel controller back to zero on disable. Helps prevent the I term from accumulating to quickly
@@ -121,15 +121,6 @@ public class MechController extends EventController implements GRTJoystickListen
 
     }
 
-    public void XAxisMoved(JoystickEvent e) {
-    }
-
-    public void YAxisMoved(JoystickEvent e) {
-    }
-
-    public void AngleChanged(JoystickEvent e) {
-    }
-
     //commented out code is because betabot is FUBAR
     public void buttonPressed(ButtonEvent e) {
         try {
@@ -162,7 +153,7 @@ public class MechController extends EventController implements GRTJoystickListen
                         climber.lower();
                         break;
                     case GRTJoystick.KEY_BUTTON_9:
-                        GRTConstants.updateConstants();
+                        reloadConstants();
                         break;
                      
                     case GRTJoystick.KEY_BUTTON_7:
@@ -193,10 +184,7 @@ public class MechController extends EventController implements GRTJoystickListen
                         shooter.setSpeed(shootingSpeed);
                         break;
                     case GRTXboxJoystick.KEY_BUTTON_RIGHT_SHOULDER:
-                        if (canShoot) {
-                            shooter.shoot();
-                            new Thread(shooterTimer).start();
-                        }
+                        shooter.getSequencer().fireContinuously();
                         break;
                     case GRTXboxJoystick.KEY_BUTTON_BACK:
                         logInfo("Storing angle.");
@@ -251,52 +239,49 @@ public class MechController extends EventController implements GRTJoystickListen
                     shooter.setFlywheelOutput(0.0);
                     break;
                 case GRTXboxJoystick.KEY_BUTTON_RIGHT_SHOULDER:
-                    shooter.unShoot();
+                    shooter.getSequencer().stop();
                     break;
             }
         }
     }
 
-    public void leftXAxisMoved(XboxJoystickEvent e) {
-    }
-
-    public void leftYAxisMoved(XboxJoystickEvent e) {
-        if (e.getSource() == secondary) {
-            shooter.adjustHeight(-e.getData());
+    //Secondary stick axes. Values are raw stick positions.
+    private SensorSubscriber leftYAxis = new SensorSubscriber() {
+        public void stateChanged(Sensor source, int key, double value,
+                long timestamp) {
+            shooter.adjustHeight(-value);
         }
+    };
 
-    }
-
-    public void leftAngleChanged(XboxJoystickEvent e) {
-    }
-
-    public void rightXAxisMoved(XboxJoystickEvent e) {
-    }
-
-    public void rightYAxisMoved(XboxJoystickEvent e) {
-        double scaleFactor = -3.0;
-        if (e.getSource() == secondary) {
-            //System.out.println("adjusting shooter by " + e.getData() / scaleFactor);
-            shooter.adjustHeight(-e.getData() / scaleFactor);
+    private SensorSubscriber rightYAxis = new SensorSubscriber() {
+        public void stateChanged(Sensor source, int key, double value,
+                long timestamp) {
+            double scaleFactor = -3.0;
+            //System.out.println("adjusting shooter by " + value / scaleFactor);
+            shooter.adjustHeight(value / scaleFactor);
         }
-    }
+    };
 
-    public void padMoved(XboxJoystickEvent e) {
-        int oldPadPosition = padPosition;
-        if (oldPadPosition != (padPosition = e.getData() > 0.5 ? 1 : (e.getData() < -0.5 ? -1 : 0))) {
-            shooter.incrementAngle(padPosition * DEG_INCREMENT);
+    private SensorSubscriber pad = new SensorSubscriber() {
+        public void stateChanged(Sensor source, int key, double value,
+                long timestamp) {
+            int oldPadPosition = padPosition;
+            if (oldPadPosition != (padPosition = value > 0.5 ? 1 : (value < -0.5 ? -1 : 0))) {
+                shooter.incrementAngle(padPosition * DEG_INCREMENT);
+            }
         }
-    }
+    };
 
-    public void triggerMoved(XboxJoystickEvent e) {
-        if (e.getSource() == secondary) {
-            if (Math.abs(e.getData()) <= 0.1) {
+    private SensorSubscriber trigger = new SensorSubscriber() {
+        public void stateChanged(Sensor source, int key, double value,
+                long timestamp) {
+            if (Math.abs(value) <= 0.1) {
                 xBoxBeltsRunning = false;
                 if(!joystickBeltsRunning)
                 {
                     belts.stop();
                 }
-            } else if (e.getData() > 0.0) {
+            } else if (value > 0.0) {
                 xBoxBeltsRunning = true;
                 belts.moveDown();
             } else {
@@ -304,12 +289,29 @@ public class MechController extends EventController implements GRTJoystickListen
                 belts.moveUp();
             }
         }
-    }
+    };
 
     public void valueChanged(PotentiometerEvent e) {
         System.out.println("potentiometer value changed: " + e.getData());
     }
 
+    /**
+     * Reloads the constants files in a background thread, since reading them
+     * is too slow for the polling thread. A press while a reload is still
+     * running is ignored.
+     */
+    private void reloadConstants() {
+        if (reloader != null && reloader.isAlive()) {
+            return;
+        }
+        reloader = ThreadRegistry.start(new Runnable() {
+            public void run() {
+                GRTConstants.updateConstants();
+            }
+        }, "Constants reload", GRTLoggedProcess.getThreadPriority(
+                GRTLoggedProcess.BACKGROUND));
+    }
+
     public final void updateConstants() {
         try {
             turningDivider = GRTConstants.getValue("turningDivider");
@@ -322,13 +324,4 @@ public class MechController extends EventController implements GRTJoystickListen
         shooterDown = GRTConstants.getValue("shooterDown");
         shootingSpeed = GRTConstants.getValue("shootingRPMS");
     }
-
-    private Runnable shooterTimer = new Runnable() {
-
-        public void run() {
-            canShoot = false;
-            Timer.delay(shotDelay);
-            canShoot = true;
-        }
-    };
 }
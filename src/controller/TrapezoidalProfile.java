@@ -0,0 +1,185 @@
+package controller;
+
+/**
+ * A trapezoidal motion profile: accelerate at a constant rate to a cruising
+ * velocity, cruise, then decelerate at the same rate to stop at the target.
+ * Moves too short to reach the cruising velocity accelerate halfway and
+ * decelerate the rest of the way instead.
+ *
+ * The position, velocity and acceleration along the profile are computed
+ * once, at a fixed time step, into a table; looking up the state at a time
+ * interpolates between table entries, so following the profile costs no
+ * arithmetic beyond that.
+ *
+ * @author keshav
+ */
+public class TrapezoidalProfile {
+
+    /**
+     * Default time step of the table [s].
+     */
+    public static final double DEFAULT_STEP = 0.01;
+    private final double distance;
+    private final double step;
+    private final double duration;
+    private final double[] position;
+    private final double[] velocity;
+    private final double[] acceleration;
+
+    /**
+     * Creates a profile with the default time step.
+     *
+     * @param distance distance to move; negative to move backwards
+     * @param maxVelocity cruising velocity, in distance units per second
+     * @param maxAcceleration acceleration, in distance units per second
+     * squared
+     */
+    public TrapezoidalProfile(double distance, double maxVelocity,
+            double maxAcceleration) {
+        this(distance, maxVelocity, maxAcceleration, DEFAULT_STEP);
+    }
+
+    /**
+     * Creates a profile.
+     *
+     * @param distance distance to move; negative to move backwards
+     * @param maxVelocity cruising velocity, in distance units per second
+     * @param maxAcceleration acceleration, in distance units per second
+     * squared
+     * @param step time step of the table [s]
+     */
+    public TrapezoidalProfile(double distance, double maxVelocity,
+            double maxAcceleration, double step) {
+        if (maxVelocity <= 0 || maxAcceleration <= 0 || step <= 0) {
+            throw new IllegalArgumentException(
+                    "Profile limits and step must be positive");
+        }
+        this.distance = distance;
+        this.step = step;
+
+        double sign = distance < 0 ? -1 : 1;
+        double d = Math.abs(distance);
+        double accelTime = maxVelocity / maxAcceleration;
+        double accelDistance = maxAcceleration * accelTime * accelTime / 2;
+        double cruiseTime;
+        double peak;
+        if (2 * accelDistance > d) {
+            //never reaches cruising velocity
+            accelTime = Math.sqrt(d / maxAcceleration);
+            accelDistance = d / 2;
+            cruiseTime = 0;
+            peak = maxAcceleration * accelTime;
+        } else {
+            cruiseTime = (d - 2 * accelDistance) / maxVelocity;
+            peak = maxVelocity;
+        }
+        duration = 2 * accelTime + cruiseTime;
+
+        int n = (int) Math.ceil(duration / step) + 1;
+        position = new double[n];
+        velocity = new double[n];
+        acceleration = new double[n];
+        double decelStart = accelTime + cruiseTime;
+        for (int i = 0; i < n; i++) {
+            double t = Math.min(i * step, duration);
+            double p, v, a;
+            if (t < accelTime) {
+                a = maxAcceleration;
+                v = a * t;
+                p = a * t * t / 2;
+            } else if (t < decelStart) {
+                a = 0;
+                v = peak;
+                p = accelDistance + peak * (t - accelTime);
+            } else if (t < duration) {
+                double left = duration - t;
+                a = -maxAcceleration;
+                v = maxAcceleration * left;
+                p = d - maxAcceleration * left * left / 2;
+            } else {
+                a = 0;
+                v = 0;
+                p = d;
+            }
+            position[i] = sign * p;
+            velocity[i] = sign * v;
+            acceleration[i] = sign * a;
+        }
+    }
+
+    /**
+     * Returns the time the profile takes to reach its target.
+     *
+     * @return duration [s]
+     */
+    public double getDuration() {
+        return duration;
+    }
+
+    /**
+     * Returns the distance the profile moves.
+     *
+     * @return distance
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * Returns whether the profile has reached its target by a time.
+     *
+     * @param t time since the start of the profile [s]
+     * @return true if finished
+     */
+    public boolean isFinished(double t) {
+        return t >= duration;
+    }
+
+    /**
+     * Returns the position along the profile at a time.
+     *
+     * @param t time since the start of the profile [s]
+     * @return position
+     */
+    public double getPosition(double t) {
+        return interpolate(position, t);
+    }
+
+    /**
+     * Returns the velocity along the profile at a time.
+     *
+     * @param t time since the start of the profile [s]
+     * @return velocity, in distance units per second
+     */
+    public double getVelocity(double t) {
+        return interpolate(velocity, t);
+    }
+
+    /**
+     * Returns the acceleration along the profile at a time.
+     *
+     * @param t time since the start of the profile [s]
+     * @return acceleration, in distance units per second squared
+     */
+    public double getAcceleration(double t) {
+        if (t <= 0 || t >= duration) {
+            return t <= 0 ? acceleration[0] : 0;
+        }
+        //acceleration is piecewise constant, so take the entry at or before t
+        return acceleration[(int) (t / step)];
+    }
+
+    private double interpolate(double[] table, double t) {
+        if (t <= 0) {
+            return table[0];
+        }
+        int last = table.length - 1;
+        double index = t / step;
+        int i = (int) index;
+        if (i >= last) {
+            return table[last];
+        }
+        double frac = index - i;
+        return table[i] + (table[i + 1] - table[i]) * frac;
+    }
+}
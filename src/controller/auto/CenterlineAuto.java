@@ -8,6 +8,7 @@ import controller.DeadReckoner;
 import core.GRTConstants;
 import core.GRTMacro;
 import core.GRTMacroController;
+import core.MacroGroup;
 import macro.AutoPickup;
 import macro.LowerPickup;
 import macro.MacroDelay;
@@ -53,10 +54,7 @@ public class CenterlineAuto extends GRTMacroController {
 
         //lowers shooter and starts up EP as it starts driving
         ShooterSet lowerShooter = new ShooterSet(downAngle, 0, shooter, 3500);
-        addMacro(lowerShooter);
-
         AutoPickup startPickup = new AutoPickup(ep, belts, 300);
-        addMacro(startPickup);
         
         //Important Constants
                double startingY = GRTConstants.getValue("CenterlineInitialY"); //Starting position on the field: Y
@@ -77,22 +75,31 @@ public class CenterlineAuto extends GRTMacroController {
         System.out.println("Attempting Center Pickup!!!");
         System.out.println("Attempting Center Pickup!!!");
         
-        addMacro(new MacroTurn(dt, gyro, DeadReckoner.turnAngle(centerlineDriveAngle), 3000));  //Turn to the angle that gets us to the left side of the field.
-        addMacro(new MacroDrive(dt, driveToCenter, 5000)); //Drive over to the center line
-        addMacro(new MacroTurn(dt, gyro, DeadReckoner.turnAngle(centerPickupAngle), 2000));   //Turn to the frisbees
-        addMacro(new MacroDrive(dt, pickupFrisbeesDriveDistance, 3000));//Pickup some frisbees. Change distance based on frisbees on field.
-        
-        addMacro(new ShooterSet(autoShooterAngle, shootingSpeed, shooter, 2500)); //start moving shooter back
-        addMacro(new MacroDelay((int)shooterDelay));
+        MacroGroup toCenterline = new MacroGroup("To centerline", MacroGroup.SEQUENCE, 13000)
+                .addMacro(new MacroTurn(dt, gyro, DeadReckoner.turnAngle(centerlineDriveAngle), 3000))  //Turn to the angle that gets us to the left side of the field.
+                .addMacro(new MacroDrive(dt, driveToCenter, 5000)) //Drive over to the center line
+                .addMacro(new MacroTurn(dt, gyro, DeadReckoner.turnAngle(centerPickupAngle), 2000))   //Turn to the frisbees
+                .addMacro(new MacroDrive(dt, pickupFrisbeesDriveDistance, 3000));//Pickup some frisbees. Change distance based on frisbees on field.
+        //the shooter lowers and the pickup runs for as long as we are driving
+        addMacro(new MacroGroup("Pickup on centerline", MacroGroup.DEADLINE, 13000)
+                .addMacro(toCenterline)
+                .addMacro(lowerShooter)
+                .addMacro(startPickup));
         
         double backToPyramidAngle = DeadReckoner.angleFrom(startingX, startingY);
-        addMacro(new MacroTurn(dt, gyro, backToPyramidAngle, 2000));    //Turn back to the pyramid
-        
         double backToPyramidDistance = DeadReckoner.distanceFrom(startingX, startingY);
-        addMacro(new MacroDrive(dt, backToPyramidDistance, 5000));  //Drive back to the pyramid
-        
         double turnToShoot = DeadReckoner.turnAngle(startingAngle); //Find the angle we need to turn back to to shoot.
-        addMacro(new MacroTurn(dt, gyro, turnToShoot, 2000));
+        MacroGroup backToPyramid = new MacroGroup("Back to pyramid", MacroGroup.SEQUENCE, 9000)
+                .addMacro(new MacroTurn(dt, gyro, backToPyramidAngle, 2000))    //Turn back to the pyramid
+                .addMacro(new MacroDrive(dt, backToPyramidDistance, 5000))  //Drive back to the pyramid
+                .addMacro(new MacroTurn(dt, gyro, turnToShoot, 2000));
+        //start moving shooter back and spinning up on the way back
+        MacroGroup spinUp = new MacroGroup("Spin up", MacroGroup.SEQUENCE, 2600 + (int)shooterDelay)
+                .addMacro(new ShooterSet(autoShooterAngle, shootingSpeed, shooter, 2500))
+                .addMacro(new MacroDelay((int)shooterDelay));
+        addMacro(new MacroGroup("Return and spin up", MacroGroup.PARALLEL, 9000)
+                .addMacro(backToPyramid)
+                .addMacro(spinUp));
         
         addMacro(new Shoot(shooter, 500, 5));
         
@@ -7,6 +7,7 @@ package controller.auto;
 import core.GRTConstants;
 import core.GRTMacro;
 import core.GRTMacroController;
+import core.MacroGroup;
 import macro.AutoPickup;
 import macro.LowerPickup;
 import macro.MacroDelay;
@@ -46,34 +47,35 @@ public class FiveFrisbeeAuto extends GRTMacroController {
 
         double autoDriveDistance = GRTConstants.getValue("auto5Distance");    //Drive angled for 1.80m to pickup the two frisbees centered under the pyramid.
 //        double headingAngle = GRTConstants.getValue("headingAngle");
-        //lowers pickup
+        //lowers pickup while the shooter sets up its angle and flywheel speed
         GRTMacro lowerPickup = new LowerPickup(ep);
-        addMacro(lowerPickup);
-	
-        //Sets up shooter angle and flywheel speed
         System.out.println("Setting shooter up to shoot ");
-        addMacro(new ShooterSet(autoShooterAngle1, shootingSpeed, shooter, 2500));
-        addMacro(new MacroDelay((int)shooterDelay));
+        MacroGroup spinUp = new MacroGroup("Spin up", MacroGroup.SEQUENCE, 2600 + (int)shooterDelay)
+                .addMacro(new ShooterSet(autoShooterAngle1, shootingSpeed, shooter, 2500))
+                .addMacro(new MacroDelay((int)shooterDelay));
+        addMacro(new MacroGroup("Lower pickup and spin up", MacroGroup.PARALLEL, 2600 + (int)shooterDelay)
+                .addMacro(lowerPickup)
+                .addMacro(spinUp));
 	
         //Shoot our 3 frisbees (4 shots in case of a misfire)
         addMacro(new Shoot(shooter, 500, 4));
 
-        //lowers shooter and starts up EP as it starts driving
+        //lowers shooter and starts up EP as it starts turning around
         ShooterSet lowerShooter = new ShooterSet(downAngle, 0, shooter, 3500);
-	
-        addMacro(lowerShooter);
         AutoPickup startPickup = new AutoPickup(ep, belts, 300);
-        addMacro(startPickup);
+        addMacro(new MacroGroup("Lower shooter and turn", MacroGroup.DEADLINE, 3500)
+                .addMacro(new MacroTurn(dt, gyro, 180.0, 2000))
+                .addMacro(lowerShooter)
+                .addMacro(startPickup));
 	
-	//Turn around
-	addMacro(new MacroTurn(dt, gyro, 180.0, 2000));
-        //spins around, drives over frisbees, comes back  
+        //drives over frisbees, comes back  
 	addMacro(new MacroDrive(dt, autoDriveDistance, 2000));
         addMacro(new MacroDrive(dt, -autoDriveDistance, 2000));
-        addMacro(new MacroTurn(dt, gyro, -180.0, 2000));
 
-	//Setup the shooter for our second two frisbees
-        addMacro(new ShooterSet(autoShooterAngle2, shootingSpeed, shooter, 2500));	
+	//Setup the shooter for our second two frisbees while turning back
+        addMacro(new MacroGroup("Turn back and set up", MacroGroup.PARALLEL, 2500)
+                .addMacro(new MacroTurn(dt, gyro, -180.0, 2000))
+                .addMacro(new ShooterSet(autoShooterAngle2, shootingSpeed, shooter, 2500)));
 
         addMacro(new Shoot(shooter, 500, 5));
         //spins down shooter and lowers it prior to teleop
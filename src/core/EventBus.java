@@ -0,0 +1,263 @@
+package core;
+
+import edu.wpi.first.wpilibj.Utility;
+
+/**
+ * Asynchronous dispatch lane for sensor events.
+ *
+ * Sensors normally call their listeners on the thread that polls them, so a
+ * slow listener delays the polling of every other sensor. Listeners that are
+ * not safety-critical may instead register as asynchronous: the sensor then
+ * posts its state changes to an EventBus, and the bus's own thread calls the
+ * asynchronous listeners.
+ *
+ * Posted changes are held in a fixed-size ring buffer of primitives, so
+ * posting never allocates and never waits for a listener. Changes to keys the
+ * sensor marks as coalescing replace a change to the same key that is still
+ * waiting, so slow listeners on continuous data get its latest value rather
+ * than falling behind. A quarter of the buffer is kept for changes to other,
+ * discrete keys, such as button presses, so that continuous data cannot
+ * crowd them out. When a change does not fit, it is dropped and counted, and
+ * a dropped discrete change is logged, since its listeners miss an edge.
+ *
+ * The bus belongs to the BACKGROUND priority class, so asynchronous listeners
+ * only run in time left over by control and sensing.
+ *
+ * @author ajc
+ */
+public class EventBus extends GRTLoggedProcess implements Runnable {
+
+    public static final int DEFAULT_CAPACITY = 64;
+    private static EventBus defaultBus = null;
+    //Ring buffer of pending changes
+    private final Sensor[] sources;
+    private final int[] ids;
+    private final double[] values;
+    //Slots that only discrete changes may fill
+    private final int reserved;
+    private int head = 0;
+    private int count = 0;
+    //Statistics
+    private int maxDepth = 0;
+    private int drops = 0;
+    private int dispatched = 0;
+    private int coalesced = 0;
+    private Thread thread = null;
+
+    /**
+     * Creates a new event bus. It does not dispatch until started.
+     *
+     * @param name name of the bus
+     * @param capacity maximum number of pending changes
+     */
+    public EventBus(String name, int capacity) {
+        super(name);
+        setPriorityClass(BACKGROUND);
+        sources = new Sensor[capacity];
+        ids = new int[capacity];
+        values = new double[capacity];
+        reserved = capacity / 4;
+    }
+
+    /**
+     * Returns the bus shared by all sensors, starting it the first time.
+     *
+     * @return default event bus
+     */
+    public static synchronized EventBus getDefault() {
+        if (defaultBus == null) {
+            defaultBus = new EventBus("Event bus", DEFAULT_CAPACITY);
+            defaultBus.start();
+        }
+        return defaultBus;
+    }
+
+    /**
+     * Starts the dispatcher thread.
+     */
+    public synchronized void start() {
+        running = true;
+        if (thread == null) {
+            thread = ThreadRegistry.start(this, name,
+                    getThreadPriority(getPriorityClass()));
+        }
+    }
+
+    /**
+     * Stops the dispatcher thread once it has finished its current dispatch.
+     * Pending changes are kept, and dispatched if the bus is started again.
+     */
+    public synchronized void halt() {
+        running = false;
+        notifyAll();
+    }
+
+    /**
+     * Stops the dispatcher thread, and waits for it to exit.
+     *
+     * @param timeout longest time to wait [ms]
+     * @return true if the thread has exited, false if the timeout elapsed
+     * first
+     */
+    public boolean halt(long timeout) {
+        Thread t;
+        synchronized (this) {
+            t = thread;
+            halt();
+        }
+        return t == null || ThreadRegistry.awaitExit(t, timeout);
+    }
+
+    public boolean isRunning() {
+        Thread t = thread;
+        return t != null && t.isAlive();
+    }
+
+    /**
+     * Queues a state change for asynchronous dispatch.
+     *
+     * @param source sensor whose state changed
+     * @param id key of the datum
+     * @param value new value of the datum
+     * @return true if queued, false if the queue was full and it was dropped
+     */
+    public boolean post(Sensor source, int id, double value) {
+        boolean coalescing = source.isCoalescing(id);
+        synchronized (this) {
+            if (coalescing && source.queuedSlot[id] >= 0) {
+                values[source.queuedSlot[id]] = value;
+                coalesced++;
+                source.changeCoalesced();
+                return true;
+            }
+
+            int limit = coalescing ? sources.length - reserved : sources.length;
+            if (count < limit) {
+                enqueue(source, id, value, coalescing);
+                return true;
+            }
+            drops++;
+        }
+        if (!coalescing) {
+            logError("Queue full, dropped change to key " + id + " of "
+                    + source);
+        }
+        return false;
+    }
+
+    /**
+     * Adds a change at the tail of the queue. Must be called with the bus
+     * locked.
+     */
+    private void enqueue(Sensor source, int id, double value,
+            boolean coalescing) {
+        int tail = (head + count) % sources.length;
+        sources[tail] = source;
+        ids[tail] = id;
+        values[tail] = value;
+        if (coalescing) {
+            source.queuedSlot[id] = tail;
+        }
+        count++;
+        if (count > maxDepth) {
+            maxDepth = count;
+        }
+        notify();
+    }
+
+    public void run() {
+        while (true) {
+            Sensor source;
+            int id;
+            double value;
+            synchronized (this) {
+                while (running && count == 0) {
+                    try {
+                        wait();
+                    } catch (InterruptedException ex) {
+                    }
+                }
+                if (!running) {
+                    thread = null;
+                    return;
+                }
+
+                source = sources[head];
+                id = ids[head];
+                value = values[head];
+                if (source.queuedSlot[id] == head) {
+                    source.queuedSlot[id] = -1;
+                }
+                sources[head] = null;
+                head = (head + 1) % sources.length;
+                count--;
+                dispatched++;
+            }
+
+            long start = Utility.getFPGATime();
+            try {
+                source.dispatchAsync(id, value);
+            } catch (RuntimeException e) {
+                logError("Listener of " + source + " threw " + e);
+            }
+            LoopMonitor.recordCpuTime(getPriorityClass(),
+                    Utility.getFPGATime() - start);
+        }
+    }
+
+    /**
+     * Returns the number of changes waiting to be dispatched.
+     *
+     * @return current queue depth
+     */
+    public synchronized int getQueueDepth() {
+        return count;
+    }
+
+    /**
+     * Returns the largest number of changes that have been waiting at once.
+     *
+     * @return maximum queue depth
+     */
+    public synchronized int getMaxQueueDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Returns how many changes were dropped because the queue was full.
+     *
+     * @return number of dropped changes
+     */
+    public synchronized int getDropCount() {
+        return drops;
+    }
+
+    /**
+     * Returns how many changes have been dispatched.
+     *
+     * @return number of dispatched changes
+     */
+    public synchronized int getDispatchCount() {
+        return dispatched;
+    }
+
+    /**
+     * Returns how many changes replaced a waiting change to the same key.
+     *
+     * @return number of coalesced changes
+     */
+    public synchronized int getCoalescedCount() {
+        return coalesced;
+    }
+
+    /**
+     * Logs queue depth, drop and coalescing statistics.
+     */
+    public void logStatistics() {
+        logInfo("Dispatched " + getDispatchCount() + ", coalesced "
+                + getCoalescedCount() + ", dropped "
+                + getDropCount() + ", queue depth " + getQueueDepth()
+                + " (max " + getMaxQueueDepth() + " of " + sources.length
+                + ")");
+    }
+}
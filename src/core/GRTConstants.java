@@ -139,6 +139,19 @@ public class GRTConstants {
         }
         return ((Double) table.get(id)).doubleValue();
     }
+
+    /**
+     * Get the constants value for a particular id, falling back to a default
+     * if no such key exists.
+     *
+     * @param id String ID for a constant
+     * @param defaultValue value to return if the constant is not defined
+     * @return the constant associated with this id, or defaultValue
+     */
+    public static double getValue(String id, double defaultValue) {
+        Double value = (Double) table.get(id);
+        return value == null ? defaultValue : value.doubleValue();
+    }
     
     public static void addListener(ConstantUpdateListener l) {
         constantUpdateListeners.addElement(l);
@@ -1,5 +1,6 @@
 package core;
 
+import edu.wpi.first.wpilibj.Utility;
 import logger.GRTLogger;
 
 /**
@@ -8,14 +9,79 @@ import logger.GRTLogger;
  *
  * Logging is done to the static GRTLogger.
  *
+ * By default, a polling process sleeps for its sleep time after each poll, so
+ * its real period is the sleep time plus however long poll() took. In
+ * fixed-rate mode it instead polls at absolute deadlines, one period apart on
+ * the FPGA clock, and sleeps only for what is left of each period. A poll that
+ * runs past the next deadline counts as a missed deadline, and the overrun
+ * policy decides whether the missed polls are made up or skipped.
+ *
+ * Polling processes share the threads of the default GRTScheduler rather
+ * than each owning one. A process that must not wait behind others, or that
+ * blocks in poll(), can ask for a dedicated thread instead.
+ *
+ * Each process belongs to a priority class, which sets the priority of the
+ * thread that polls it: CONTROL for loops that drive actuators, SENSING for
+ * sampling sensors, and BACKGROUND for logging, displays and reports, which
+ * should only use time the other classes leave over. The time spent polling
+ * is accounted per class and reported by the LoopMonitor.
+ *
+ * halt() returns at once, interrupting a dedicated thread's sleep, and
+ * halt(timeout) also waits for a poll in progress to finish. Polling may be
+ * restarted as soon as halt() returns: startPolling() waits briefly for the
+ * old poll to end, so a process never has two polls running at once.
+ *
  * @author ajc
  */
 public abstract class GRTLoggedProcess {
 
+    /**
+     * Overrun policy: run missed polls back to back until back on schedule.
+     */
+    public static final int CATCH_UP = 0;
+    /**
+     * Overrun policy: drop missed polls and resume at the next deadline.
+     */
+    public static final int SKIP = 1;
+    /**
+     * Priority class: control loops and actuator timing.
+     */
+    public static final int CONTROL = 0;
+    /**
+     * Priority class: sensor sampling. The default.
+     */
+    public static final int SENSING = 1;
+    /**
+     * Priority class: logging, displays and other work that can wait.
+     */
+    public static final int BACKGROUND = 2;
+    /**
+     * Number of priority classes.
+     */
+    public static final int NUM_PRIORITY_CLASSES = 3;
+    //Thread priority of each priority class
+    private static final int[] THREAD_PRIORITIES = {
+        Thread.NORM_PRIORITY + 3, Thread.NORM_PRIORITY + 1,
+        Thread.NORM_PRIORITY - 2};
     protected final String name;
-    protected boolean running = false;
+    protected volatile boolean running = false;
     private int sleepTime;
-    private Thread thread = null;
+    private static final long RESTART_TIMEOUT = 100;
+    private volatile Thread thread = null;
+    //Dedicated thread told to stop that may still be finishing a poll
+    private Thread stoppingThread = null;
+    private final Object lifecycle = new Object();
+    private boolean dedicatedThread = false;
+    //Scheduler bookkeeping, guarded by the scheduler
+    long nextRun;
+    int heapIndex = -1;
+    boolean scheduled = false;
+    private boolean fixedRate = false;
+    private int overrunPolicy = SKIP;
+    private int missedDeadlines = 0;
+    private int skippedPolls = 0;
+    private LoopStats loopStats = null;
+    private volatile int priorityClass = SENSING;
 
     /**
      * Constructs a new GRTLoggedProcess that does not poll.
@@ -40,31 +106,195 @@ public abstract class GRTLoggedProcess {
 
     private Runnable poller = new Runnable() {
         public void run() {
-            running = true;
-            while (running && sleepTime >= 0) {
+            Thread self = Thread.currentThread();
+            long deadline = Utility.getFPGATime();
+            //a halted thread exits even if polling has since restarted
+            while (thread == self && sleepTime >= 0) {
                 //only poll, and thus only send events, if enabled
-                poll();
+                runPoll();
+
+                long delay = sleepTime;
+                if (fixedRate) {
+                    deadline = computeNextRun(deadline);
+                    delay = millisUntil(deadline);
+                }
 
                 try {
-                    Thread.sleep(sleepTime);
+                    if (delay <= 0) {
+                        Thread.yield();
+                    }
+                    //sleep() may return early, so never poll before the deadline
+                    while (delay > 0) {
+                        Thread.sleep(delay);
+                        delay = fixedRate ? millisUntil(deadline) : 0;
+                    }
                 } catch (InterruptedException ex) {
-                    ex.printStackTrace();
+                    //halted; the loop condition ends the thread
                 }
             }
-            thread = null;
         }
     };
 
+    /**
+     * Polls once, recording the iteration in this process's loop stats.
+     */
+    void runPoll() {
+        LoopStats stats = loopStats;
+        long start = Utility.getFPGATime();
+        if (stats != null) {
+            stats.loopStarted(start);
+        }
+        poll();
+        long end = Utility.getFPGATime();
+        if (stats != null) {
+            stats.loopEnded(end);
+        }
+        LoopMonitor.recordCpuTime(priorityClass, end - start);
+    }
+
+    /**
+     * Returns the time from one FPGA timestamp to another. The FPGA clock is
+     * a 32-bit microsecond counter that wraps about every 71 minutes, so
+     * timestamps are compared by their difference modulo 2^32, which is
+     * correct across a wrap as long as they are within 2^31 us (about 35
+     * minutes) of each other.
+     *
+     * @param from earlier timestamp [us]
+     * @param to later timestamp [us]
+     * @return to - from, negative if to is before from [us]
+     */
+    public static long fpgaDelta(long from, long to) {
+        return (int) (to - from);
+    }
+
+    /**
+     * Returns the time left until an FPGA timestamp, rounded up to whole
+     * milliseconds.
+     *
+     * @param time FPGA timestamp [us]
+     * @return time left [ms], or 0 if the time has passed
+     */
+    private static long millisUntil(long time) {
+        long remaining = fpgaDelta(Utility.getFPGATime(), time);
+        return remaining > 0 ? (remaining + 999) / 1000 : 0;
+    }
+
+    /**
+     * Returns the polling period, or a negative number if this process does
+     * not poll.
+     *
+     * @return period [us]
+     */
+    long getPeriod() {
+        return sleepTime * 1000L;
+    }
+
+    /**
+     * Computes when the next poll should start: one period after the last
+     * deadline in fixed-rate mode, otherwise one sleep time from now.
+     *
+     * @param deadline start time of the poll that just finished [us]
+     * @return start time of the next poll [us]
+     */
+    long computeNextRun(long deadline) {
+        long period = sleepTime * 1000L;
+        long now = Utility.getFPGATime();
+        if (!fixedRate) {
+            return now + period;
+        }
+        if (period <= 0) {
+            return now;
+        }
+        deadline += period;
+
+        //compare by difference, so that the schedule survives a clock wrap
+        long ahead = fpgaDelta(now, deadline);
+        if (ahead > period) {
+            //the last deadline is in the future, so it is not from this
+            //schedule; start a fresh one
+            return now + period;
+        }
+        if (ahead <= 0) {
+            missedDeadlines++;
+            if (overrunPolicy == SKIP) {
+                long missed = -ahead / period + 1;
+                skippedPolls += missed;
+                deadline += missed * period;
+            }
+        }
+        return deadline;
+    }
+
     /**
      * Starts polling.
      */
     public void startPolling() {
-        if (sleepTime >= 0 && !isRunning()) {
-            thread = new Thread(poller);
-            thread.start();
+        if (sleepTime < 0) {
+            return;
+        }
+
+        if (loopStats == null) {
+            loopStats = LoopMonitor.getStats(name, sleepTime * 1000L);
+        }
+        loopStats.pause();
+
+        if (dedicatedThread) {
+            synchronized (lifecycle) {
+                if (thread != null) {
+                    return;
+                }
+                running = true;
+                awaitStopped(RESTART_TIMEOUT);
+                thread = ThreadRegistry.start(poller, name,
+                        getThreadPriority(priorityClass));
+            }
+        } else {
+            running = true;
+            GRTScheduler.getDefault().schedule(this);
         }
     }
 
+    /**
+     * Sets whether this process polls in its own thread rather than on the
+     * shared scheduler. Takes effect the next time polling starts.
+     *
+     * @param dedicated true to poll in a dedicated thread
+     */
+    public void setDedicatedThread(boolean dedicated) {
+        dedicatedThread = dedicated;
+    }
+
+    /**
+     * Sets the priority class of this process. A dedicated thread that is
+     * already running keeps its priority until polling restarts.
+     *
+     * @param priorityClass CONTROL, SENSING or BACKGROUND
+     */
+    public void setPriorityClass(int priorityClass) {
+        if (priorityClass >= 0 && priorityClass < NUM_PRIORITY_CLASSES) {
+            this.priorityClass = priorityClass;
+        }
+    }
+
+    /**
+     * Returns the priority class of this process.
+     *
+     * @return CONTROL, SENSING or BACKGROUND
+     */
+    public int getPriorityClass() {
+        return priorityClass;
+    }
+
+    /**
+     * Returns the thread priority that work of a priority class runs at.
+     *
+     * @param priorityClass CONTROL, SENSING or BACKGROUND
+     * @return thread priority
+     */
+    public static int getThreadPriority(int priorityClass) {
+        return THREAD_PRIORITIES[priorityClass];
+    }
+
     /**
      * In order to poll and have meaningful effects, poll() must be overridden.
      */
@@ -99,10 +329,62 @@ public abstract class GRTLoggedProcess {
     }
 
     /**
-     * Stops execution of this process.
+     * Stops execution of this process. A poll in progress finishes, but a
+     * dedicated thread's sleep is interrupted, so no further poll starts.
      */
     public void halt() {
         running = false;
+        Thread t;
+        synchronized (lifecycle) {
+            t = thread;
+            if (t != null) {
+                thread = null;
+                stoppingThread = t;
+            }
+        }
+        //a thread halting itself finishes its poll and exits on its own
+        if (t != null && t != Thread.currentThread()) {
+            t.interrupt();
+        }
+        GRTScheduler.getDefault().cancel(this);
+    }
+
+    /**
+     * Stops execution of this process, and waits for a poll in progress to
+     * finish.
+     *
+     * @param timeout longest time to wait [ms]
+     * @return true if no poll is in progress, false if the timeout elapsed
+     * first
+     */
+    public boolean halt(long timeout) {
+        halt();
+        return awaitStopped(timeout);
+    }
+
+    /**
+     * Waits for a halted dedicated thread to exit, or a halted poll on the
+     * scheduler to finish.
+     */
+    private boolean awaitStopped(long timeout) {
+        Thread t;
+        synchronized (lifecycle) {
+            t = stoppingThread;
+        }
+        boolean stopped = true;
+        if (t != null) {
+            stopped = ThreadRegistry.awaitExit(t, timeout);
+            if (stopped) {
+                synchronized (lifecycle) {
+                    if (stoppingThread == t) {
+                        stoppingThread = null;
+                    }
+                }
+            } else {
+                logError("Thread did not stop within " + timeout + " ms");
+            }
+        }
+        return GRTScheduler.getDefault().awaitIdle(this, timeout) && stopped;
     }
 
     /**
@@ -111,7 +393,8 @@ public abstract class GRTLoggedProcess {
      * @return true if running, false otherwise.
      */
     public boolean isRunning() {
-        return thread != null && thread.isAlive();
+        Thread t = thread;
+        return (t != null && t.isAlive()) || (scheduled && running);
     }
 
     /**
@@ -133,6 +416,53 @@ public abstract class GRTLoggedProcess {
         return "[[" + getID() + "]]";
     }
 
+    /**
+     * Returns the timing telemetry of this process's poll loop.
+     *
+     * @return loop stats, or null if this process has never polled
+     */
+    public LoopStats getLoopStats() {
+        return loopStats;
+    }
+
+    /**
+     * Sets whether to poll at a fixed rate. In fixed-rate mode, the sleep
+     * time is the period between the starts of consecutive polls.
+     *
+     * @param fixedRate true to poll against absolute deadlines, false to sleep
+     * for the sleep time after each poll
+     */
+    public void setFixedRate(boolean fixedRate) {
+        this.fixedRate = fixedRate;
+    }
+
+    /**
+     * Sets what to do when a fixed-rate poll overruns its period.
+     *
+     * @param policy CATCH_UP or SKIP
+     */
+    public void setOverrunPolicy(int policy) {
+        overrunPolicy = policy;
+    }
+
+    /**
+     * Returns how many fixed-rate polls finished after the next one was due.
+     *
+     * @return number of missed deadlines
+     */
+    public int getMissedDeadlines() {
+        return missedDeadlines;
+    }
+
+    /**
+     * Returns how many fixed-rate polls were dropped by the SKIP policy.
+     *
+     * @return number of skipped polls
+     */
+    public int getSkippedPolls() {
+        return skippedPolls;
+    }
+
     /**
      * Sets how long to sleep for.
      *
@@ -6,26 +6,55 @@ package core;
 
 import event.events.MacroEvent;
 import event.listeners.MacroListener;
-import java.util.Enumeration;
 import java.util.Vector;
 
 /**
  * A GRTMacro specifies code to complete one discrete motion (ie. Turn a
  * specified angle, drive a specific distance). Most useful for autonomous mode.
  *
+ * Macros do not run on the thread that executes them. execute() schedules the
+ * macro and returns at once; the macro is then stepped on the GRTScheduler,
+ * calling perform() once every poll time until it finishes or times out.
+ * Completion is signalled to MacroListeners, and await() may be used to
+ * block until the macro is done. Macros that wait for a fixed time should
+ * schedule a callback on the TimerWheel rather than sleep; macros whose
+ * perform() blocks anyway should ask for a dedicated thread, so that they do
+ * not hold up a shared worker.
+ *
+ * The macro's lock only guards its state: initialize(), perform() and die()
+ * run outside of it, and so do listener notifications. kill() never waits
+ * for a step in progress; the step finishes the kill once perform() returns.
+ *
+ * Macros declare the subsystems they require. Starting a macro preempts any
+ * other macro using one of those subsystems (see ResourceArbiter), and a
+ * GRTMacroController runs macros that share no subsystem concurrently.
+ * Macros that move the robot should also be blocking, so that the macros
+ * after them in a routine wait for the robot to arrive. A macro that
+ * requires nothing is a barrier: it waits for every macro before it, and
+ * every macro after it waits for it.
+ *
  * @author andrew, keshav
  */
 public abstract class GRTMacro extends GRTLoggedProcess {
 
-    private boolean hasCompletedExecution = false;
+    private volatile boolean hasCompletedExecution = false;
     private boolean hasTimedOut = false;
     private boolean hasInitialized = false;
     private boolean hasStarted = false;
-    private boolean alive = false;
-    private Vector macroListeners;
+    private volatile boolean alive = false;
+    //A step is running initialize() or perform(); kills wait for it to end
+    private boolean stepping = false;
+    private boolean hasDied = false;
+    private final ListenerList macroListeners = new ListenerList();
+    private final MacroEvent event = new MacroEvent(this);
     private int timeout;
     private long startTime;
-    private int pollTime;
+    private int requirements = 0;
+    private boolean blocking = false;
+    private final Vector prerequisites = new Vector();
+    private volatile MacroTimeline timeline = null;
+    private boolean hasPerformed = false;
+    private boolean onTarget = false;
     private static final int NOTIFY_INITIALIZE = 0;
     private static final int NOTIFY_COMPLETED = 1;
     private static final int NOTIFY_TIMEDOUT = 2;
@@ -39,10 +68,9 @@ public abstract class GRTMacro extends GRTLoggedProcess {
      * @param pollTime Time in ms how often to call perform()
      */
     public GRTMacro(String name, int timeout, int pollTime) {
-        super(name);
+        super(name, pollTime);
+        setPriorityClass(CONTROL);
         this.timeout = timeout;
-        this.pollTime = pollTime;
-        macroListeners = new Vector();
     }
 
     /**
@@ -59,44 +87,110 @@ public abstract class GRTMacro extends GRTLoggedProcess {
     }
 
     /**
-     * Executes the macro. If it has not been started, it initializes the macro
-     * and repeatedly calls perform() until the macro has completed execution,
-     * then calls die().
+     * Executes the macro. If it has not been started, schedules it to be
+     * initialized and then performed until it has completed execution, and
+     * returns without waiting for it.
      */
     public void execute() {
-        if (!hasStarted) {
+        synchronized (this) {
+            if (hasStarted) {
+                return;
+            }
             hasStarted = true;
+        }
+        startPolling();
+    }
+
+    protected void poll() {
+        step();
+    }
+
+    /**
+     * Runs one iteration of the macro: initializes it on the first step, then
+     * performs it and checks for completion and timeout.
+     */
+    private void step() {
+        boolean initializing;
+        boolean killed;
+        synchronized (this) {
+            if (hasDied) {
+                halt();
+                return;
+            }
+            killed = hasCompletedExecution;
+            stepping = !killed;
+            initializing = !hasInitialized;
+        }
+        if (killed) {
+            //finished between steps, for instance by a timer
+            kill();
+            return;
+        }
 
+        if (initializing) {
             logInfo("Initializing Macro...");
+            record(MacroTimeline.INITIALIZED);
+            ResourceArbiter.acquire(this, requirements);
             initialize();
-            hasInitialized = true;
-            alive = true;
+            synchronized (this) {
+                hasInitialized = true;
+                alive = true;
+                this.startTime = System.currentTimeMillis();
+            }
             notifyListeners(NOTIFY_INITIALIZE);
-            this.startTime = System.currentTimeMillis();
+        }
 
-            while (!hasCompletedExecution) {
-                perform();
+        //a kill during initialize() takes effect before perform()
+        if (!hasCompletedExecution) {
+            if (!hasPerformed) {
+                hasPerformed = true;
+                record(MacroTimeline.FIRST_PERFORM);
+            }
+            perform();
+        }
 
-                try {
-                    Thread.sleep(pollTime);
-                } catch (InterruptedException ex) {
-                    ex.printStackTrace();
-                }
-                
-                if ((System.currentTimeMillis() - startTime) > timeout) {
-                    hasCompletedExecution = true;
-                    hasTimedOut = true;
-                    notifyListeners(NOTIFY_TIMEDOUT);
-                }
+        boolean timedOut = false;
+        boolean finished;
+        synchronized (this) {
+            stepping = false;
+            if (!hasCompletedExecution
+                    && (System.currentTimeMillis() - startTime) > timeout) {
+                hasCompletedExecution = true;
+                hasTimedOut = timedOut = true;
             }
-            
+            finished = hasCompletedExecution;
+        }
+        if (timedOut) {
+            record(MacroTimeline.TIMED_OUT);
+            notifyListeners(NOTIFY_TIMEDOUT);
+        }
+        if (finished) {
             kill();
-            
-            System.out.println("Notify that we died.");
-            notifyListeners(NOTIFY_COMPLETED);
         }
     }
 
+    /**
+     * Waits for the macro to finish.
+     *
+     * @param timeout longest time to wait [ms], or 0 to wait indefinitely
+     * @return true if the macro is done, false if the timeout elapsed first
+     */
+    public synchronized boolean await(long timeout) {
+        long deadline = System.currentTimeMillis() + timeout;
+        while (!isFinished()) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (timeout > 0 && remaining <= 0) {
+                return false;
+            }
+            try {
+                wait(timeout > 0 ? remaining : 0);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      *
      * @return state of macro initialization
@@ -122,16 +216,122 @@ public abstract class GRTMacro extends GRTLoggedProcess {
     }
 
     /**
-     * Resets the macro, as if it had never began.
+     * Resets the macro, as if it had never began. A macro that is still
+     * running is killed first.
      */
     public void reset() {
-        hasCompletedExecution = hasStarted = hasTimedOut = alive = false;
+        kill();
+        synchronized (this) {
+            hasCompletedExecution = hasStarted = hasTimedOut = alive = false;
+            hasInitialized = hasPerformed = onTarget = hasDied = false;
+        }
     }
-    
+
     public boolean isAlive(){
         return alive;
     }
 
+    /**
+     * Returns whether the macro has been killed and has finished dying, so
+     * that it has released its subsystems and anything it leased. A macro
+     * is done as soon as it is told to finish, but only finished once its
+     * kill completes.
+     *
+     * @return true if the macro is finished
+     */
+    public synchronized boolean isFinished() {
+        return hasDied && !alive;
+    }
+
+    /**
+     * Sets the timeline this macro records its progress in.
+     *
+     * @param timeline timeline to record in, or null to stop recording
+     */
+    public void setTimeline(MacroTimeline timeline) {
+        this.timeline = timeline;
+    }
+
+    private void record(int event) {
+        MacroTimeline t = timeline;
+        if (t != null) {
+            t.record(this, event);
+        }
+    }
+
+    /**
+     * Tells the timeline whether the macro's controller is on target, so that
+     * time spent settling after reaching the target shows up in reports.
+     * Only the change from off to on target is recorded.
+     *
+     * @param onTarget true if the macro has reached its target
+     */
+    protected final void setOnTarget(boolean onTarget) {
+        if (onTarget && !this.onTarget) {
+            record(MacroTimeline.ON_TARGET);
+        }
+        this.onTarget = onTarget;
+    }
+
+    /**
+     * Declares subsystems this macro requires.
+     *
+     * @param subsystems bits of the required subsystems, ORed together
+     */
+    protected final void requires(int subsystems) {
+        requirements |= subsystems;
+    }
+
+    /**
+     * Returns the subsystems this macro requires.
+     *
+     * @return bits of the required subsystems, or 0 if none are declared
+     */
+    public int getRequirements() {
+        return requirements;
+    }
+
+    /**
+     * Sets whether macros after this one in a routine must wait for it, even
+     * if they require other subsystems.
+     *
+     * @param blocking true to make later macros wait
+     */
+    protected final void setBlocking(boolean blocking) {
+        this.blocking = blocking;
+    }
+
+    /**
+     * Returns whether macros after this one in a routine must wait for it.
+     * Barriers, which require no subsystems, are always blocking.
+     *
+     * @return true if later macros wait for this one
+     */
+    public boolean isBlocking() {
+        return blocking || getRequirements() == 0;
+    }
+
+    /**
+     * Makes this macro wait for another macro of the same routine to finish
+     * before starting, in addition to any macro it conflicts with.
+     *
+     * @param m macro to wait for
+     */
+    public void addPrerequisite(GRTMacro m) {
+        prerequisites.addElement(m);
+    }
+
+    /**
+     * Returns the macros this macro explicitly waits for.
+     *
+     * @return prerequisites
+     */
+    public GRTMacro[] getPrerequisites() {
+        GRTMacro[] p = new GRTMacro[prerequisites.size()];
+        prerequisites.copyInto(p);
+        return p;
+    }
+
     /**
      * Macro initialization.
      */
@@ -143,7 +343,7 @@ public abstract class GRTMacro extends GRTLoggedProcess {
     protected abstract void perform();
 
     protected abstract void die();
-    
+
     /**
      * Call this to indicate that the loop should no longer run.
      */
@@ -152,43 +352,72 @@ public abstract class GRTMacro extends GRTLoggedProcess {
     }
 
     /**
-     * After executing, or to forcibly halt a macro
+     * After executing, or to forcibly halt a macro. Stops stepping the macro,
+     * calls die() if it was running, and notifies listeners that it is done.
+     * A started macro always notifies, even if it was killed before its first
+     * step. If a step is in progress, returns at once, and the step finishes
+     * the kill when it ends.
      */
     public void kill() {
-        if (isAlive()) {
-            System.out.println("Killing macro: " + name);
+        boolean wasAlive;
+        synchronized (this) {
+            if (!hasStarted || hasDied) {
+                return;
+            }
             hasCompletedExecution = true;
-            alive = false;
+            halt();
+            if (stepping) {
+                return;
+            }
+            hasDied = true;
+            wasAlive = alive;
+        }
+
+        if (wasAlive) {
+            System.out.println("Killing macro: " + name);
             die();
+            ResourceArbiter.release(this);
         }
+        synchronized (this) {
+            //only now, with its subsystems released, is the macro finished
+            alive = false;
+            notifyAll();
+        }
+        record(MacroTimeline.DONE);
+        System.out.println("Notify that we died.");
+        notifyListeners(NOTIFY_COMPLETED);
     }
-    
+
     public void addListener(MacroListener l) {
-        macroListeners.addElement(l);
+        macroListeners.add(l);
     }
 
     public void removeListener(MacroListener l) {
-        macroListeners.removeElement(l);
+        macroListeners.remove(l);
     }
 
     private void notifyListeners(int id) {
+        Object[] listeners = macroListeners.getListeners();
         switch (id) {
             case NOTIFY_COMPLETED:
-                for (Enumeration en = macroListeners.elements(); en.
-                        hasMoreElements();) {
-                    ((MacroListener) en.nextElement()).macroDone(new MacroEvent(this));
+                for (int i = 0; i < listeners.length; i++) {
+                    long start = macroListeners.startCall();
+                    ((MacroListener) listeners[i]).macroDone(event);
+                    macroListeners.endCall(listeners, i, start);
                 }
                 break;
             case NOTIFY_TIMEDOUT:
-                for (Enumeration en = macroListeners.elements(); en.
-                        hasMoreElements();) {
-                    ((MacroListener) en.nextElement()).macroTimedOut(new MacroEvent(this));
+                for (int i = 0; i < listeners.length; i++) {
+                    long start = macroListeners.startCall();
+                    ((MacroListener) listeners[i]).macroTimedOut(event);
+                    macroListeners.endCall(listeners, i, start);
                 }
                 break;
             case NOTIFY_INITIALIZE:
-                for (Enumeration en = macroListeners.elements(); en.
-                        hasMoreElements();) {
-                    ((MacroListener) en.nextElement()).macroInitialized(new MacroEvent(this));
+                for (int i = 0; i < listeners.length; i++) {
+                    long start = macroListeners.startCall();
+                    ((MacroListener) listeners[i]).macroInitialized(event);
+                    macroListeners.endCall(listeners, i, start);
                 }
                 break;
         }
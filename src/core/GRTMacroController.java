@@ -7,17 +7,39 @@ import java.util.Vector;
 import logger.GRTLogger;
 
 /**
- * Creates a new MacroController that executes macros in sequence.
+ * Creates a new MacroController that executes a routine of macros.
+ *
+ * Macros are added in the order they would run one after another, and the
+ * controller runs the routine as a dependency graph: a macro starts as soon
+ * as every earlier macro it depends on is done. A macro depends on an
+ * earlier one if they require a common subsystem, if the earlier one is
+ * blocking, if either is a barrier that requires nothing, or if the earlier
+ * one is among its prerequisites. Independent macros therefore overlap,
+ * while macros that would fight over a subsystem keep their order.
+ *
+ * Macros run on the scheduler and execute() does not wait for them, so
+ * enabling the controller returns at once and the call stack stays flat
+ * however long the routine is.
+ *
+ * Macros can also be grouped explicitly, by adding them together as a
+ * MacroGroup.
+ *
+ * Every macro records its progress in the controller's MacroTimeline, which
+ * is logged when the routine completes or the controller is disabled.
  *
- * Macros can also be executed concurrently with others, if added
- * to the concurrentMacros vector.
- * 
  * @author keshav, calvin
  */
 public class GRTMacroController extends EventController implements MacroListener {
 
     private Vector macros;
-    private int currentIndex = -1;
+    private GRTMacro[] routine = new GRTMacro[0];
+    //Indices of the macros each macro waits for
+    private int[][] dependencies = new int[0][];
+    private boolean[] started = new boolean[0];
+    private int remaining = 0;
+    private static final int TIMELINE_CAPACITY = 256;
+    private final MacroTimeline timeline;
+    private boolean timelineReported = true;
 
 
     /**
@@ -27,7 +49,7 @@ public class GRTMacroController extends EventController implements MacroListener
     public GRTMacroController(){
         this(new Vector());
     }
-    
+
     /**
      * Creates a new GRTMacroController.
      * @param macros list of macros to run
@@ -35,22 +57,28 @@ public class GRTMacroController extends EventController implements MacroListener
     public GRTMacroController(Vector macros) {
         super("Macro controller");
         this.macros = macros;
+        timeline = new MacroTimeline(getClass().getName(), TIMELINE_CAPACITY);
     }
 
     protected void startListening() {
 //        System.out.println("Number of macros: " + macros.size());
 
         System.out.println("start listen");
-        currentIndex = -1;
         for (Enumeration en = macros.elements(); en.hasMoreElements();) {
             GRTMacro m = (GRTMacro) en.nextElement();
             m.reset();
             m.addListener(this);
+            m.setTimeline(timeline);
         }
-        
-        startNextMacro();
+
+        synchronized (this) {
+            buildGraph();
+            timeline.reset();
+            timelineReported = false;
+        }
+        startReadyMacros();
     }
-    
+
     public void addMacro(GRTMacro m){
         System.out.println("GRTMacroController " + getID() + "  adding macro #" + (macros.size() + 1));
         macros.addElement(m);
@@ -58,12 +86,84 @@ public class GRTMacroController extends EventController implements MacroListener
 
     protected void stopListening() {
         System.out.println("Disabling macrocontroller");
+        synchronized (this) {
+            remaining = 0;
+        }
         for (Enumeration en = macros.elements(); en.hasMoreElements();) {
             GRTMacro m = (GRTMacro) en.nextElement();
-            m.removeListener(this);    
+            m.removeListener(this);
             m.kill();
         }
-    }   
+        reportTimeline();
+    }
+
+    /**
+     * Logs the timeline of the last run of the routine, once per run.
+     */
+    private void reportTimeline() {
+        synchronized (this) {
+            if (timelineReported) {
+                return;
+            }
+            timelineReported = true;
+        }
+        timeline.report();
+    }
+
+    /**
+     * Returns the timeline of the current or last run of the routine.
+     *
+     * @return macro timeline
+     */
+    public MacroTimeline getTimeline() {
+        return timeline;
+    }
+
+    /**
+     * Works out which earlier macros each macro of the routine waits for.
+     */
+    private void buildGraph() {
+        routine = new GRTMacro[macros.size()];
+        macros.copyInto(routine);
+        dependencies = new int[routine.length][];
+        started = new boolean[routine.length];
+        remaining = routine.length;
+
+        Vector deps = new Vector();
+        for (int i = 0; i < routine.length; i++) {
+            deps.removeAllElements();
+            GRTMacro[] prerequisites = routine[i].getPrerequisites();
+            for (int j = 0; j < i; j++) {
+                if (dependsOn(routine[i], routine[j])
+                        || contains(prerequisites, routine[j])) {
+                    deps.addElement(new Integer(j));
+                }
+            }
+            dependencies[i] = new int[deps.size()];
+            for (int k = 0; k < dependencies[i].length; k++) {
+                dependencies[i][k] = ((Integer) deps.elementAt(k)).intValue();
+            }
+        }
+    }
+
+    private static boolean dependsOn(GRTMacro later, GRTMacro earlier) {
+        int needs = later.getRequirements();
+        return needs == 0 || earlier.isBlocking()
+                || (needs & earlier.getRequirements()) != 0;
+    }
+
+    private static boolean contains(GRTMacro[] array, GRTMacro m) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == m) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isFinished(int i) {
+        return started[i] && routine[i].isFinished();
+    }
 
     public void macroInitialized(MacroEvent e) {
         GRTLogger.logInfo("Initialized macro: " + e.getSource().getID());
@@ -71,23 +171,52 @@ public class GRTMacroController extends EventController implements MacroListener
 
     public void macroDone(MacroEvent e) {
         GRTLogger.logInfo("Completed macro: " + e.getSource().getID());
-            startNextMacro();
+        boolean complete;
+        synchronized (this) {
+            remaining--;
+            complete = remaining == 0;
+        }
+        if (complete) {
+            GRTLogger.logSuccess("Completed all macros. Waiting for teleop!");
+            reportTimeline();
+        }
+        startReadyMacros();
     }
 
     public void macroTimedOut(MacroEvent e) {
         GRTLogger.logError("Macro " + e.getSource().getID() +
                 " timed out. Skipping macros.");
     }
-    
-    private void startNextMacro() {
-        System.out.println("Next macro up to bat!");
-        if (++currentIndex < macros.size()) {
-            System.out.println("Starting new Macros!");
-            GRTMacro macro = (GRTMacro) macros.elementAt(currentIndex);
-            System.out.println("\tIt's a regular macro! " + macro.getID());
+
+    /**
+     * Starts every macro whose dependencies are all done.
+     */
+    private void startReadyMacros() {
+        Vector ready = new Vector();
+        synchronized (this) {
+            if (remaining <= 0) {
+                return;
+            }
+            for (int i = 0; i < routine.length; i++) {
+                if (started[i]) {
+                    continue;
+                }
+                boolean canStart = true;
+                for (int k = 0; k < dependencies[i].length && canStart; k++) {
+                    canStart = isFinished(dependencies[i][k]);
+                }
+                if (canStart) {
+                    started[i] = true;
+                    ready.addElement(routine[i]);
+                }
+            }
+        }
+
+        //execute outside the lock, as a macro may finish and call back at once
+        for (int i = 0; i < ready.size(); i++) {
+            GRTMacro macro = (GRTMacro) ready.elementAt(i);
+            System.out.println("Starting macro " + macro.getID());
             macro.execute();
-        } else {
-            GRTLogger.logSuccess("Completed all macros. Waiting for teleop!");
         }
     }
 }
@@ -0,0 +1,272 @@
+package core;
+
+import edu.wpi.first.wpilibj.Utility;
+import logger.GRTLogger;
+
+/**
+ * Runs periodic GRTLoggedProcesses on a small, shared pool of threads.
+ *
+ * Rather than each polling process sleeping in its own thread, processes are
+ * kept in a heap ordered by when they next need to poll. Worker threads take
+ * the process with the earliest deadline, poll it, and put it back with its
+ * next deadline. On the single-core cRIO this replaces a context switch per
+ * process per period with a few threads that only wake when something is due.
+ *
+ * A worker takes on the thread priority of the process it polls, and waits
+ * at CONTROL priority so that it wakes promptly for whatever is due next.
+ *
+ * Deadlines are FPGA timestamps, and are compared by their difference so
+ * that the heap stays ordered when the 32-bit FPGA clock wraps around.
+ *
+ * @author ajc
+ */
+public class GRTScheduler {
+
+    private static final int DEFAULT_WORKERS = 2;
+    private static final int WAITING_PRIORITY =
+            GRTLoggedProcess.getThreadPriority(GRTLoggedProcess.CONTROL);
+    private static int defaultWorkers = DEFAULT_WORKERS;
+    private static GRTScheduler defaultScheduler = null;
+    private final String name;
+    private final Thread[] workers;
+    //Binary min-heap of processes, ordered by nextRun
+    private GRTLoggedProcess[] heap = new GRTLoggedProcess[8];
+    private int size = 0;
+
+    /**
+     * Creates a new scheduler. Its worker threads start when the first
+     * process is scheduled.
+     *
+     * @param name name of the scheduler, used for its threads
+     * @param numWorkers number of worker threads
+     */
+    public GRTScheduler(String name, int numWorkers) {
+        this.name = name;
+        workers = new Thread[Math.max(1, numWorkers)];
+    }
+
+    /**
+     * Returns the scheduler that polling processes run on by default.
+     *
+     * @return default scheduler
+     */
+    public static synchronized GRTScheduler getDefault() {
+        if (defaultScheduler == null) {
+            defaultScheduler = new GRTScheduler("Scheduler", defaultWorkers);
+        }
+        return defaultScheduler;
+    }
+
+    /**
+     * Sets how many worker threads the default scheduler uses. Only has an
+     * effect before the first process starts polling.
+     *
+     * @param numWorkers number of worker threads
+     */
+    public static synchronized void setDefaultWorkerCount(int numWorkers) {
+        defaultWorkers = numWorkers;
+    }
+
+    /**
+     * Starts polling a process as soon as possible. Does nothing if the
+     * process is already scheduled.
+     *
+     * @param p process to poll
+     */
+    synchronized void schedule(GRTLoggedProcess p) {
+        if (p.scheduled) {
+            return;
+        }
+        p.scheduled = true;
+        p.nextRun = Utility.getFPGATime();
+        push(p);
+        startWorkers();
+    }
+
+    /**
+     * Stops polling a process. A poll already in progress finishes, and the
+     * process is then not rescheduled.
+     *
+     * @param p process to stop polling
+     */
+    synchronized void cancel(GRTLoggedProcess p) {
+        if (p.heapIndex >= 0) {
+            removeAt(p.heapIndex);
+            p.scheduled = false;
+        }
+    }
+
+    /**
+     * Returns the number of processes waiting for their next poll.
+     *
+     * @return number of scheduled processes
+     */
+    public synchronized int numScheduled() {
+        return size;
+    }
+
+    private void startWorkers() {
+        for (int i = 0; i < workers.length; i++) {
+            if (workers[i] == null) {
+                workers[i] = ThreadRegistry.start(worker, name + " " + i,
+                        WAITING_PRIORITY);
+            }
+        }
+    }
+
+    private final Runnable worker = new Runnable() {
+        public void run() {
+            Thread self = Thread.currentThread();
+            while (true) {
+                GRTLoggedProcess p = take();
+                self.setPriority(GRTLoggedProcess.getThreadPriority(
+                        p.getPriorityClass()));
+                try {
+                    p.runPoll();
+                } catch (Throwable e) {
+                    //an Error must not take the worker down with it
+                    GRTLogger.logError(name + "\t" + p + " threw " + e);
+                }
+                self.setPriority(WAITING_PRIORITY);
+                reschedule(p);
+            }
+        }
+    };
+
+    /**
+     * Waits until the earliest process is due, and removes it from the heap.
+     */
+    private synchronized GRTLoggedProcess take() {
+        while (true) {
+            if (size == 0) {
+                waitFor(0);
+                continue;
+            }
+
+            GRTLoggedProcess p = heap[0];
+            long now = Utility.getFPGATime();
+            long delay = GRTLoggedProcess.fpgaDelta(now, p.nextRun);
+            if (delay <= 0) {
+                return removeAt(0);
+            }
+            if (delay > Math.max(0, p.getPeriod())) {
+                //no process is due more than a period ahead; the deadline
+                //is stale, so re-anchor it to now
+                p.nextRun = now;
+                return removeAt(0);
+            }
+            //wait() has millisecond resolution, so round up rather than wake
+            //early; this also never waits for 0, which means forever
+            waitFor((delay + 999) / 1000);
+        }
+    }
+
+    private synchronized void reschedule(GRTLoggedProcess p) {
+        if (p.running && p.scheduled) {
+            p.nextRun = p.computeNextRun(p.nextRun);
+            push(p);
+        } else {
+            p.scheduled = false;
+            //wake anything waiting in awaitIdle()
+            notifyAll();
+        }
+    }
+
+    /**
+     * Waits for a halted process's poll in progress, if any, to finish.
+     *
+     * @param p halted process
+     * @param timeout longest time to wait [ms]
+     * @return true if the process is not being polled, false if the timeout
+     * elapsed first
+     */
+    synchronized boolean awaitIdle(GRTLoggedProcess p, long timeout) {
+        long deadline = System.currentTimeMillis() + timeout;
+        //a scheduled process outside the heap is being polled right now
+        while (!p.running && p.scheduled && p.heapIndex < 0) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            waitFor(remaining);
+        }
+        return true;
+    }
+
+    private void waitFor(long millis) {
+        try {
+            wait(millis);
+        } catch (InterruptedException e) {
+        }
+    }
+
+    private void push(GRTLoggedProcess p) {
+        if (size == heap.length) {
+            GRTLoggedProcess[] bigger = new GRTLoggedProcess[heap.length * 2];
+            System.arraycopy(heap, 0, bigger, 0, size);
+            heap = bigger;
+        }
+        heap[size] = p;
+        p.heapIndex = size;
+        size++;
+        siftUp(p.heapIndex);
+        //the new process may be due before whatever workers are waiting on
+        notifyAll();
+    }
+
+    private GRTLoggedProcess removeAt(int i) {
+        GRTLoggedProcess p = heap[i];
+        size--;
+        if (i != size) {
+            move(heap[size], i);
+            heap[size] = null;
+            siftDown(i);
+            siftUp(i);
+        } else {
+            heap[size] = null;
+        }
+        p.heapIndex = -1;
+        return p;
+    }
+
+    private void siftUp(int i) {
+        GRTLoggedProcess p = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!isBefore(p, heap[parent])) {
+                break;
+            }
+            move(heap[parent], i);
+            i = parent;
+        }
+        move(p, i);
+    }
+
+    private void siftDown(int i) {
+        GRTLoggedProcess p = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && isBefore(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!isBefore(heap[child], p)) {
+                break;
+            }
+            move(heap[child], i);
+            i = child;
+        }
+        move(p, i);
+    }
+
+    private static boolean isBefore(GRTLoggedProcess a, GRTLoggedProcess b) {
+        return GRTLoggedProcess.fpgaDelta(b.nextRun, a.nextRun) < 0;
+    }
+
+    private void move(GRTLoggedProcess p, int i) {
+        heap[i] = p;
+        p.heapIndex = i;
+    }
+}
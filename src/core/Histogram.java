@@ -0,0 +1,151 @@
+package core;
+
+/**
+ * A histogram of non-negative samples over fixed buckets.
+ *
+ * Buckets are given by their exclusive upper bounds, plus one overflow bucket
+ * for everything larger. Recording a sample is a short scan over the bounds
+ * and never allocates, so histograms may be updated from time-critical code.
+ * A histogram is meant to be written by one thread; other threads reading it
+ * for reports may see a sample half-recorded.
+ *
+ * @author ajc
+ */
+public class Histogram {
+
+    private final long[] bounds;
+    private final int[] counts;
+    private int total = 0;
+    private long sum = 0;
+    private long max = 0;
+
+    /**
+     * Creates a histogram.
+     *
+     * @param upperBounds exclusive upper bound of each bucket, in increasing
+     * order
+     */
+    public Histogram(long[] upperBounds) {
+        bounds = new long[upperBounds.length];
+        System.arraycopy(upperBounds, 0, bounds, 0, bounds.length);
+        counts = new int[bounds.length + 1];
+    }
+
+    /**
+     * Records a sample.
+     *
+     * @param value sample to record
+     */
+    public void record(long value) {
+        int i = 0;
+        while (i < bounds.length && value >= bounds[i]) {
+            i++;
+        }
+        counts[i]++;
+        total++;
+        sum += value;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Discards all samples.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+        total = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    /**
+     * Returns the number of buckets, including the overflow bucket.
+     *
+     * @return number of buckets
+     */
+    public int numBuckets() {
+        return counts.length;
+    }
+
+    /**
+     * Returns the number of samples in a bucket.
+     *
+     * @param bucket index of the bucket; the last is the overflow bucket
+     * @return number of samples in the bucket
+     */
+    public int getCount(int bucket) {
+        return counts[bucket];
+    }
+
+    /**
+     * Returns the number of samples recorded.
+     *
+     * @return number of samples
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Returns the sum of all samples.
+     *
+     * @return sum of samples
+     */
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * Returns the largest sample recorded.
+     *
+     * @return largest sample, or 0 if there are none
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the mean of all samples.
+     *
+     * @return mean sample, or 0 if there are none
+     */
+    public double getMean() {
+        return total == 0 ? 0 : (double) sum / total;
+    }
+
+    /**
+     * Estimates a percentile as the upper bound of the bucket it falls in.
+     * Percentiles falling in the overflow bucket return the largest sample.
+     *
+     * @param fraction percentile to estimate, from 0 to 1
+     * @return upper bound on the percentile
+     */
+    public long getPercentile(double fraction) {
+        int threshold = (int) Math.ceil(fraction * total);
+        int seen = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            seen += counts[i];
+            if (seen >= threshold && seen > 0) {
+                return bounds[i];
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the bucket counts, in the format "<10:4 <100:2 >=100:0".
+     */
+    public String toString() {
+        StringBuffer sb = new StringBuffer();
+        for (int i = 0; i < bounds.length; i++) {
+            sb.append('<').append(bounds[i]).append(':').append(counts[i]);
+            sb.append(' ');
+        }
+        sb.append(">=").append(bounds[bounds.length - 1]).append(':');
+        sb.append(counts[bounds.length]);
+        return sb.toString();
+    }
+}
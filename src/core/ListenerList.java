@@ -0,0 +1,258 @@
+package core;
+
+import edu.wpi.first.wpilibj.Utility;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Vector;
+
+/**
+ * A copy-on-write list of listeners.
+ *
+ * Adding or removing a listener copies the backing array, while dispatching
+ * only reads the current array. Dispatch is therefore a plain array loop that
+ * never takes a lock or allocates, and listeners may be added or removed from
+ * any thread (including from within a callback) without disturbing a dispatch
+ * already in progress: that dispatch finishes on the snapshot it started with.
+ *
+ * Listeners are kept in two lanes: inline listeners, which are called on the
+ * thread that fires the event, and asynchronous listeners, which are called
+ * from an EventBus. Lists owned by a sensor tell it when listeners come and
+ * go, so that it only posts to the bus when needed, and so that a poller
+ * knows whether anything consumes the sensor's data.
+ *
+ * Dispatch loops bracket each call with startCall() and endCall(), which
+ * feed the execution time into the listener's ListenerStats. A list is only
+ * known to the ListenerProfiler while it has listeners, and a listener's
+ * stats are dropped when it is removed, so short-lived lists, such as those
+ * of macros, leave nothing behind.
+ *
+ * @author ajc
+ */
+public class ListenerList {
+
+    private static final Object[] EMPTY = new Object[0];
+    private volatile Object[] listeners = EMPTY;
+    private volatile Object[] asyncListeners = EMPTY;
+    //Stats of each listener, parallel to the listener arrays
+    private static final ListenerStats[] NO_STATS = new ListenerStats[0];
+    private volatile ListenerStats[] stats = NO_STATS;
+    private volatile ListenerStats[] asyncStats = NO_STATS;
+    //Stats of every registered listener, by listener
+    private final Hashtable allStats = new Hashtable();
+    private final Sensor owner;
+
+    /**
+     * Creates a list that is not owned by a sensor.
+     */
+    public ListenerList() {
+        this(null);
+    }
+
+    /**
+     * Creates a list of listeners to a sensor.
+     *
+     * @param owner sensor that dispatches to this list
+     */
+    public ListenerList(Sensor owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Adds an inline listener.
+     *
+     * @param l listener to add
+     */
+    public void add(Object l) {
+        add(l, false);
+    }
+
+    /**
+     * Adds a listener.
+     *
+     * @param l listener to add
+     * @param async true to call the listener from the owner's event bus,
+     * false to call it on the thread that fires the event
+     */
+    public synchronized void add(Object l, boolean async) {
+        ListenerStats s = (ListenerStats) allStats.get(l);
+        if (s == null) {
+            if (allStats.isEmpty()) {
+                ListenerProfiler.register(this);
+            }
+            s = new ListenerStats(l, owner);
+            allStats.put(l, s);
+        }
+
+        if (async) {
+            asyncStats = (ListenerStats[]) append(asyncStats,
+                    s, new ListenerStats[asyncStats.length + 1]);
+            asyncListeners = append(asyncListeners, l,
+                    new Object[asyncListeners.length + 1]);
+        } else {
+            stats = (ListenerStats[]) append(stats, s,
+                    new ListenerStats[stats.length + 1]);
+            listeners = append(listeners, l, new Object[listeners.length + 1]);
+        }
+        if (owner != null) {
+            owner.listenerAdded(async);
+        }
+    }
+
+    /**
+     * Removes the first occurrence of a listener, from either lane.
+     *
+     * @param l listener to remove
+     * @return true if the listener was registered, false otherwise
+     */
+    public synchronized boolean remove(Object l) {
+        int i = indexOf(listeners, l);
+        if (i >= 0) {
+            listeners = delete(listeners, i, new Object[listeners.length - 1]);
+            stats = (ListenerStats[]) delete(stats, i,
+                    new ListenerStats[stats.length - 1]);
+            removed(l, false);
+            return true;
+        }
+
+        i = indexOf(asyncListeners, l);
+        if (i >= 0) {
+            asyncListeners = delete(asyncListeners, i,
+                    new Object[asyncListeners.length - 1]);
+            asyncStats = (ListenerStats[]) delete(asyncStats, i,
+                    new ListenerStats[asyncStats.length - 1]);
+            removed(l, true);
+            return true;
+        }
+        return false;
+    }
+
+    private void removed(Object l, boolean async) {
+        //a listener added more than once keeps its stats until its last copy
+        //is removed
+        if (indexOf(listeners, l) < 0 && indexOf(asyncListeners, l) < 0) {
+            allStats.remove(l);
+            if (allStats.isEmpty()) {
+                ListenerProfiler.unregister(this);
+            }
+        }
+        if (owner != null) {
+            owner.listenerRemoved(async);
+        }
+    }
+
+    /**
+     * Removes all listeners.
+     */
+    public synchronized void clear() {
+        while (listeners.length > 0) {
+            remove(listeners[0]);
+        }
+        while (asyncListeners.length > 0) {
+            remove(asyncListeners[0]);
+        }
+    }
+
+    private static Object[] append(Object[] old, Object l, Object[] copy) {
+        System.arraycopy(old, 0, copy, 0, old.length);
+        copy[old.length] = l;
+        return copy;
+    }
+
+    private static Object[] delete(Object[] old, int i, Object[] copy) {
+        System.arraycopy(old, 0, copy, 0, i);
+        System.arraycopy(old, i + 1, copy, i, old.length - i - 1);
+        return copy;
+    }
+
+    private static int indexOf(Object[] array, Object l) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == l) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Marks the start of a call to a listener.
+     *
+     * @return start time to pass to endCall()
+     */
+    public long startCall() {
+        return ListenerProfiler.startCall();
+    }
+
+    /**
+     * Marks the end of a call to a listener, and records how long it took.
+     *
+     * @param snapshot listener array being dispatched to
+     * @param i index of the listener that was called
+     * @param start value returned by startCall()
+     */
+    public void endCall(Object[] snapshot, int i, long start) {
+        if (start == 0) {
+            return;
+        }
+        long elapsed = Utility.getFPGATime() - start;
+
+        if (elapsed < 0) {
+            return;
+        }
+
+        ListenerStats[] s = snapshot == asyncListeners ? asyncStats : stats;
+        if (i < s.length && s[i].listener == snapshot[i]) {
+            s[i].record(elapsed);
+        } else {
+            //the list changed since the snapshot was taken
+            ListenerStats found = (ListenerStats) allStats.get(snapshot[i]);
+            if (found != null) {
+                found.record(elapsed);
+            }
+        }
+    }
+
+    synchronized void collectStats(Vector out) {
+        for (Enumeration e = allStats.elements(); e.hasMoreElements();) {
+            out.addElement(e.nextElement());
+        }
+    }
+
+    /**
+     * Returns a snapshot of the registered inline listeners, to be iterated
+     * over when dispatching. The returned array is shared and must not be
+     * modified.
+     *
+     * @return current inline listeners
+     */
+    public Object[] getListeners() {
+        return listeners;
+    }
+
+    /**
+     * Returns a snapshot of the listeners in one lane.
+     *
+     * @param async true for asynchronous listeners, false for inline ones
+     * @return current listeners of that lane
+     */
+    public Object[] getListeners(boolean async) {
+        return async ? asyncListeners : listeners;
+    }
+
+    /**
+     * Returns the number of registered listeners, in both lanes.
+     *
+     * @return number of listeners
+     */
+    public int size() {
+        return listeners.length + asyncListeners.length;
+    }
+
+    /**
+     * Returns whether there are no registered listeners.
+     *
+     * @return true if no listeners are registered
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+}
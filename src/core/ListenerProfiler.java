@@ -0,0 +1,117 @@
+package core;
+
+import edu.wpi.first.wpilibj.Utility;
+import java.util.Vector;
+
+/**
+ * Measures how long every listener takes to handle its events.
+ *
+ * Each ListenerList times the calls made to its listeners and keeps a
+ * ListenerStats per listener. Timing costs two FPGA clock reads per call and
+ * does not allocate, but is disabled unless enabled with setEnabled(). A
+ * running ListenerProfiler periodically logs the slowest listeners across
+ * all lists.
+ *
+ * @author ajc
+ */
+public class ListenerProfiler extends GRTLoggedProcess {
+
+    private static volatile boolean enabled = false;
+    private static final Vector lists = new Vector();
+    private final int numReported;
+
+    /**
+     * Creates a new profiler report.
+     *
+     * @param reportPeriod time between reports [ms]
+     * @param numReported how many of the slowest listeners to log
+     */
+    public ListenerProfiler(int reportPeriod, int numReported) {
+        super("Listener profiler", reportPeriod);
+        setPriorityClass(BACKGROUND);
+        this.numReported = numReported;
+    }
+
+    /**
+     * Enables or disables timing of listener calls.
+     *
+     * @param enable true to time listener calls
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    /**
+     * Returns whether listener calls are being timed.
+     *
+     * @return true if profiling is enabled
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the time a listener call starts, or 0 if profiling is disabled.
+     */
+    static long startCall() {
+        return enabled ? Utility.getFPGATime() : 0;
+    }
+
+    static void register(ListenerList list) {
+        lists.addElement(list);
+    }
+
+    static void unregister(ListenerList list) {
+        lists.removeElement(list);
+    }
+
+    /**
+     * Collects the stats of every profiled listener.
+     *
+     * @return stats of all listeners
+     */
+    public static ListenerStats[] getAllStats() {
+        ListenerList[] registered;
+        synchronized (lists) {
+            registered = new ListenerList[lists.size()];
+            lists.copyInto(registered);
+        }
+
+        Vector all = new Vector();
+        for (int i = 0; i < registered.length; i++) {
+            registered[i].collectStats(all);
+        }
+        ListenerStats[] stats = new ListenerStats[all.size()];
+        all.copyInto(stats);
+        return stats;
+    }
+
+    protected void poll() {
+        report();
+    }
+
+    /**
+     * Logs the listeners with the longest single calls.
+     */
+    public void report() {
+        ListenerStats[] stats = getAllStats();
+        int n = Math.min(numReported, stats.length);
+        //partial selection sort, slowest first
+        for (int i = 0; i < n; i++) {
+            int slowest = i;
+            for (int j = i + 1; j < stats.length; j++) {
+                if (stats[j].getMaxTime() > stats[slowest].getMaxTime()) {
+                    slowest = j;
+                }
+            }
+            ListenerStats tmp = stats[i];
+            stats[i] = stats[slowest];
+            stats[slowest] = tmp;
+        }
+
+        logInfo("Slowest " + n + " of " + stats.length + " listeners:");
+        for (int i = 0; i < n; i++) {
+            logInfo((i + 1) + ". " + stats[i]);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package core;
+
+/**
+ * Execution time statistics for one listener in one ListenerList.
+ *
+ * @author ajc
+ */
+public class ListenerStats {
+
+    /**
+     * Bucket bounds of listener execution times [us].
+     */
+    private static final long[] BUCKETS =
+            {10, 50, 100, 500, 1000, 5000, 10000, 50000};
+    final Object listener;
+    private final String name;
+    private final Histogram times = new Histogram(BUCKETS);
+
+    ListenerStats(Object listener, Object source) {
+        this.listener = listener;
+        this.name = source == null ? listener.toString()
+                : listener + " on " + source;
+    }
+
+    void record(long micros) {
+        times.record(micros);
+    }
+
+    /**
+     * Returns a description of the listener, and what it listens to.
+     *
+     * @return name of the listener
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns how many times the listener has been called.
+     *
+     * @return number of calls
+     */
+    public int getCalls() {
+        return times.getTotal();
+    }
+
+    /**
+     * Returns the total time spent in the listener.
+     *
+     * @return cumulative execution time [us]
+     */
+    public long getTotalTime() {
+        return times.getSum();
+    }
+
+    /**
+     * Returns the longest single call of the listener.
+     *
+     * @return maximum execution time [us]
+     */
+    public long getMaxTime() {
+        return times.getMax();
+    }
+
+    /**
+     * Returns the histogram of execution times [us].
+     *
+     * @return execution time histogram
+     */
+    public Histogram getHistogram() {
+        return times;
+    }
+
+    public String toString() {
+        return name + ": " + getCalls() + " calls, mean "
+                + (long) times.getMean() + "us, max " + getMaxTime()
+                + "us, total " + getTotalTime() / 1000 + "ms [" + times + "]";
+    }
+}
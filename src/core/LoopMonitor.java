@@ -0,0 +1,154 @@
+package core;
+
+import edu.wpi.first.wpilibj.DriverStationLCD;
+import edu.wpi.first.wpilibj.Utility;
+import java.util.Vector;
+
+/**
+ * Periodically summarizes the timing of every monitored loop.
+ *
+ * Each report logs the LoopStats of every polling process and macro loop,
+ * and shows the most heavily loaded loop on a line of the DriverStationLCD,
+ * so that a loop pushed over budget is visible from the driver station.
+ *
+ * The monitor also accumulates the time spent in each priority class, and
+ * reports each class's share of the time since the last report.
+ *
+ * @author ajc
+ */
+public class LoopMonitor extends GRTLoggedProcess {
+
+    private static final Vector loops = new Vector();
+    private static final String[] CLASS_NAMES = {"control", "sensing",
+        "background"};
+    //Time spent in each priority class [us]
+    private static final long[] cpuTime = new long[NUM_PRIORITY_CLASSES];
+    private final DriverStationLCD.Line lcdLine;
+    private final long[] lastCpuTime = new long[NUM_PRIORITY_CLASSES];
+    private long lastReport = 0;
+
+    /**
+     * Creates a new loop monitor.
+     *
+     * @param reportPeriod time between reports [ms]
+     * @param lcdLine driver station LCD line to show the worst loop on
+     */
+    public LoopMonitor(int reportPeriod, DriverStationLCD.Line lcdLine) {
+        super("Loop monitor", reportPeriod);
+        setPriorityClass(BACKGROUND);
+        this.lcdLine = lcdLine;
+    }
+
+    /**
+     * Returns the stats of a loop, creating them the first time. Loops with
+     * the same name and period share stats, so recreating a macro or process
+     * does not register another copy.
+     *
+     * @param name name of the loop
+     * @param nominalPeriod period the loop is meant to run at [us]
+     * @return stats to record the loop's iterations in
+     */
+    public static LoopStats getStats(String name, long nominalPeriod) {
+        synchronized (loops) {
+            for (int i = 0; i < loops.size(); i++) {
+                LoopStats s = (LoopStats) loops.elementAt(i);
+                if (s.getName().equals(name)
+                        && s.getNominalPeriod() == nominalPeriod) {
+                    return s;
+                }
+            }
+            LoopStats s = new LoopStats(name, nominalPeriod);
+            loops.addElement(s);
+            return s;
+        }
+    }
+
+    /**
+     * Returns the stats of every monitored loop.
+     *
+     * @return all loop stats
+     */
+    public static LoopStats[] getAllStats() {
+        synchronized (loops) {
+            LoopStats[] all = new LoopStats[loops.size()];
+            loops.copyInto(all);
+            return all;
+        }
+    }
+
+    /**
+     * Adds to the time spent on work of a priority class.
+     *
+     * @param priorityClass class the work belongs to
+     * @param micros time spent [us]
+     */
+    static void recordCpuTime(int priorityClass, long micros) {
+        synchronized (cpuTime) {
+            cpuTime[priorityClass] += micros;
+        }
+    }
+
+    /**
+     * Returns the total time spent on work of a priority class.
+     *
+     * @param priorityClass CONTROL, SENSING or BACKGROUND
+     * @return time spent [us]
+     */
+    public static long getCpuTime(int priorityClass) {
+        synchronized (cpuTime) {
+            return cpuTime[priorityClass];
+        }
+    }
+
+    protected void poll() {
+        report();
+    }
+
+    /**
+     * Logs every loop's stats, and shows the most loaded one on the LCD.
+     */
+    public void report() {
+        LoopStats[] all = getAllStats();
+        LoopStats worst = null;
+        for (int i = 0; i < all.length; i++) {
+            if (all[i].getExecTimes().getTotal() == 0) {
+                continue;
+            }
+            logInfo(all[i].toString());
+            if (worst == null || all[i].getWorstLoad() > worst.getWorstLoad()) {
+                worst = all[i];
+            }
+        }
+
+        reportCpuShares();
+
+        if (worst != null) {
+            DriverStationLCD lcd = DriverStationLCD.getInstance();
+            lcd.println(lcdLine, 1, worst.getName() + " "
+                    + worst.getWorstLoad() + "% ovr " + worst.getOverruns()
+                    + "        ");
+            lcd.updateLCD();
+        }
+    }
+
+    /**
+     * Logs the share of time each priority class used since the last report.
+     */
+    private void reportCpuShares() {
+        long now = Utility.getFPGATime();
+        long elapsed = now - lastReport;
+        StringBuffer line = new StringBuffer("CPU share:");
+        for (int i = 0; i < NUM_PRIORITY_CLASSES; i++) {
+            long total = getCpuTime(i);
+            long used = total - lastCpuTime[i];
+            lastCpuTime[i] = total;
+            line.append(' ').append(CLASS_NAMES[i]).append(' ');
+            line.append(lastReport == 0 || elapsed <= 0 ? 0
+                    : used * 100 / elapsed).append('%');
+        }
+        if (lastReport != 0) {
+            logInfo(line.toString());
+        }
+        lastReport = now;
+    }
+}
@@ -0,0 +1,137 @@
+package core;
+
+/**
+ * Timing telemetry for one periodic loop: the actual period between
+ * iterations, how long each iteration ran, how far the period strayed from
+ * the nominal period (jitter), and how many iterations ran longer than the
+ * nominal period (overruns).
+ *
+ * Histogram buckets are scaled to the nominal period, and everything is
+ * allocated up front, so recording is cheap enough to leave on. A loop's
+ * stats are written by the thread running the loop.
+ *
+ * @author ajc
+ */
+public class LoopStats {
+
+    private final String name;
+    private final long nominal;
+    private final Histogram periods;
+    private final Histogram execTimes;
+    private final Histogram jitter;
+    private int overruns = 0;
+    private long lastStart = 0;
+
+    /**
+     * Creates loop stats. Use LoopMonitor.getStats() so that the stats are
+     * reported.
+     *
+     * @param name name of the loop
+     * @param nominalPeriod period the loop is meant to run at [us]
+     */
+    LoopStats(String name, long nominalPeriod) {
+        this.name = name;
+        this.nominal = Math.max(1, nominalPeriod);
+        long p = nominal;
+        periods = new Histogram(new long[] {
+            p / 2, p * 3 / 4, p * 9 / 10, p * 11 / 10, p * 5 / 4, p * 3 / 2,
+            p * 2, p * 4});
+        execTimes = new Histogram(new long[] {
+            p / 10, p / 4, p / 2, p * 3 / 4, p, p * 2});
+        jitter = new Histogram(new long[] {
+            p / 100, p / 20, p / 10, p / 4, p / 2, p});
+    }
+
+    /**
+     * Marks the start of an iteration.
+     *
+     * @param now FPGA time [us]
+     */
+    public void loopStarted(long now) {
+        if (lastStart != 0 && now > lastStart) {
+            long period = now - lastStart;
+            periods.record(period);
+            jitter.record(Math.abs(period - nominal));
+        }
+        lastStart = now;
+    }
+
+    /**
+     * Marks the end of an iteration.
+     *
+     * @param now FPGA time [us]
+     */
+    public void loopEnded(long now) {
+        long exec = now - lastStart;
+        if (exec < 0) {
+            return;
+        }
+        execTimes.record(exec);
+        if (exec > nominal) {
+            overruns++;
+        }
+    }
+
+    /**
+     * Forgets the previous iteration, so that a pause in the loop (such as a
+     * macro finishing) is not recorded as one long period.
+     */
+    public void pause() {
+        lastStart = 0;
+    }
+
+    /**
+     * Discards all recorded iterations.
+     */
+    public void reset() {
+        periods.reset();
+        execTimes.reset();
+        jitter.reset();
+        overruns = 0;
+        lastStart = 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getNominalPeriod() {
+        return nominal;
+    }
+
+    public Histogram getPeriods() {
+        return periods;
+    }
+
+    public Histogram getExecTimes() {
+        return execTimes;
+    }
+
+    public Histogram getJitter() {
+        return jitter;
+    }
+
+    public int getOverruns() {
+        return overruns;
+    }
+
+    /**
+     * Returns the share of the nominal period used by the longest iteration.
+     *
+     * @return worst execution time as a percentage of the period
+     */
+    public int getWorstLoad() {
+        return (int) (100 * execTimes.getMax() / nominal);
+    }
+
+    /**
+     * Returns a one-line summary; times are in microseconds.
+     */
+    public String toString() {
+        return name + ": period " + (long) periods.getMean() + " (max "
+                + periods.getMax() + ", nominal " + nominal + "), exec "
+                + (long) execTimes.getMean() + " (max " + execTimes.getMax()
+                + "), jitter p95 <" + jitter.getPercentile(0.95)
+                + ", overruns " + overruns + "/" + execTimes.getTotal();
+    }
+}
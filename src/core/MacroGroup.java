@@ -0,0 +1,170 @@
+package core;
+
+import java.util.Vector;
+
+/**
+ * A macro made of other macros.
+ *
+ * A group runs its macros in one of four ways:
+ * <ul>
+ * <li>SEQUENCE: one after another, finishing when the last is done.</li>
+ * <li>PARALLEL: all at once, finishing when all are done.</li>
+ * <li>RACE: all at once, finishing when any is done.</li>
+ * <li>DEADLINE: all at once, finishing when the first macro added is
+ * done.</li>
+ * </ul>
+ * A macro counts as done once it has finished dying (see
+ * GRTMacro.isFinished()), so the next macro of a sequence never starts while
+ * the one before it still holds its subsystems or PID leases. Macros still
+ * running when the group finishes or times out are killed.
+ * Groups are macros themselves, so they may be nested and added to a
+ * GRTMacroController like any other macro.
+ *
+ * @author keshav
+ */
+public class MacroGroup extends GRTMacro {
+
+    public static final int SEQUENCE = 0;
+    public static final int PARALLEL = 1;
+    public static final int RACE = 2;
+    public static final int DEADLINE = 3;
+    private static final int POLL_TIME = 10;
+    private final int mode;
+    private final Vector macros = new Vector();
+    private GRTMacro[] running = new GRTMacro[0];
+    private int current;
+
+    /**
+     * Creates an empty macro group.
+     *
+     * @param name name of the group
+     * @param mode SEQUENCE, PARALLEL, RACE or DEADLINE
+     * @param timeout time in ms after which the group, and every macro in
+     * it, is stopped
+     */
+    public MacroGroup(String name, int mode, int timeout) {
+        super(name, timeout, POLL_TIME);
+        this.mode = mode;
+    }
+
+    /**
+     * Adds a macro to the group. Has no effect on a group that is running.
+     *
+     * @param m macro to add
+     * @return this group, so that adds may be chained
+     */
+    public MacroGroup addMacro(GRTMacro m) {
+        macros.addElement(m);
+        return this;
+    }
+
+    /**
+     * Returns the subsystems required by any macro in the group. The group
+     * itself does not acquire them; each macro acquires its own as it starts.
+     *
+     * @return bits of the required subsystems
+     */
+    public int getRequirements() {
+        int r = super.getRequirements();
+        for (int i = 0; i < macros.size(); i++) {
+            r |= ((GRTMacro) macros.elementAt(i)).getRequirements();
+        }
+        return r;
+    }
+
+    /**
+     * Returns whether the group, or any macro in it, is blocking.
+     *
+     * @return true if later macros wait for the group
+     */
+    public boolean isBlocking() {
+        if (super.isBlocking()) {
+            return true;
+        }
+        for (int i = 0; i < macros.size(); i++) {
+            if (((GRTMacro) macros.elementAt(i)).isBlocking()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets the timeline this group, and every macro in it, records in.
+     *
+     * @param timeline timeline to record in, or null to stop recording
+     */
+    public void setTimeline(MacroTimeline timeline) {
+        super.setTimeline(timeline);
+        for (int i = 0; i < macros.size(); i++) {
+            ((GRTMacro) macros.elementAt(i)).setTimeline(timeline);
+        }
+    }
+
+    protected void initialize() {
+        running = new GRTMacro[macros.size()];
+        macros.copyInto(running);
+        current = 0;
+        if (running.length == 0) {
+            return;
+        }
+        if (mode == SEQUENCE) {
+            start(running[0]);
+        } else {
+            for (int i = 0; i < running.length; i++) {
+                start(running[i]);
+            }
+        }
+    }
+
+    private static void start(GRTMacro m) {
+        m.reset();
+        m.execute();
+    }
+
+    protected void perform() {
+        if (running.length == 0) {
+            notifyFinished();
+            return;
+        }
+
+        switch (mode) {
+            case SEQUENCE:
+                while (running[current].isFinished()) {
+                    if (++current == running.length) {
+                        notifyFinished();
+                        return;
+                    }
+                    start(running[current]);
+                }
+                break;
+            case PARALLEL:
+                for (int i = 0; i < running.length; i++) {
+                    if (!running[i].isFinished()) {
+                        return;
+                    }
+                }
+                notifyFinished();
+                break;
+            case RACE:
+                for (int i = 0; i < running.length; i++) {
+                    if (running[i].isFinished()) {
+                        notifyFinished();
+                        return;
+                    }
+                }
+                break;
+            case DEADLINE:
+                if (running[0].isFinished()) {
+                    notifyFinished();
+                }
+                break;
+        }
+    }
+
+    protected void die() {
+        for (int i = 0; i < running.length; i++) {
+            running[i].kill();
+        }
+    }
+}
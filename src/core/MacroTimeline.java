@@ -0,0 +1,161 @@
+package core;
+
+import edu.wpi.first.wpilibj.Utility;
+import java.util.Vector;
+import logger.GRTLogger;
+
+/**
+ * A trace of when the macros of a routine start, settle and finish.
+ *
+ * Macros record events into preallocated arrays as they run, so tracing adds
+ * no allocation to a routine; events past the capacity are dropped and
+ * counted. At the end of the routine, report() logs one line per macro with
+ * its start, its duration, how long it waited after the previous macro
+ * finished, how long initialize() took, and how long it kept running after
+ * its controller was already on target, followed by the time during which
+ * no macro was running at all.
+ *
+ * @author keshav
+ */
+public class MacroTimeline {
+
+    public static final int INITIALIZED = 0;
+    public static final int FIRST_PERFORM = 1;
+    public static final int ON_TARGET = 2;
+    public static final int TIMED_OUT = 3;
+    public static final int DONE = 4;
+    private final String name;
+    private final GRTMacro[] macros;
+    private final int[] events;
+    private final long[] times;
+    private int count = 0;
+    private int dropped = 0;
+    private long start = 0;
+
+    /**
+     * Creates an empty timeline.
+     *
+     * @param name name of the routine, used in the report
+     * @param capacity maximum number of events to record
+     */
+    public MacroTimeline(String name, int capacity) {
+        this.name = name;
+        macros = new GRTMacro[capacity];
+        events = new int[capacity];
+        times = new long[capacity];
+    }
+
+    /**
+     * Clears the timeline, and starts timing a new run of the routine.
+     */
+    public synchronized void reset() {
+        for (int i = 0; i < count; i++) {
+            macros[i] = null;
+        }
+        count = 0;
+        dropped = 0;
+        start = Utility.getFPGATime();
+    }
+
+    /**
+     * Records an event of a macro, timestamped now.
+     *
+     * @param m macro the event happened to
+     * @param event INITIALIZED, FIRST_PERFORM, ON_TARGET, TIMED_OUT or DONE
+     */
+    public synchronized void record(GRTMacro m, int event) {
+        if (count == macros.length) {
+            dropped++;
+            return;
+        }
+        macros[count] = m;
+        events[count] = event;
+        times[count] = Utility.getFPGATime();
+        count++;
+    }
+
+    /**
+     * Returns the number of events recorded since the last reset.
+     *
+     * @return number of events
+     */
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Logs the timeline of every macro that has started since the last reset.
+     */
+    public synchronized void report() {
+        //macros in the order they were initialized
+        Vector order = new Vector();
+        for (int i = 0; i < count; i++) {
+            if (events[i] == INITIALIZED && !order.contains(macros[i])) {
+                order.addElement(macros[i]);
+            }
+        }
+
+        long lastDone = start;
+        long idle = 0;
+        long coveredUntil = start;
+        for (int k = 0; k < order.size(); k++) {
+            GRTMacro m = (GRTMacro) order.elementAt(k);
+            long init = lastTime(m, INITIALIZED, Long.MAX_VALUE);
+            long firstPerform = lastTime(m, FIRST_PERFORM, Long.MAX_VALUE);
+            long done = lastTime(m, DONE, Long.MAX_VALUE);
+            boolean timedOut = lastTime(m, TIMED_OUT, Long.MAX_VALUE) != 0;
+            boolean finished = done != 0;
+            long end = finished ? done : Utility.getFPGATime();
+            long onTarget = lastTime(m, ON_TARGET, end);
+
+            if (init > coveredUntil) {
+                idle += init - coveredUntil;
+            }
+            coveredUntil = Math.max(coveredUntil, end);
+
+            StringBuffer line = new StringBuffer(name);
+            line.append('\t').append(m.getID());
+            line.append("\tstart ").append(millis(init - start));
+            line.append("\tduration ").append(millis(end - init));
+            line.append("\twaited ").append(millis(Math.max(0, init - lastDone)));
+            if (firstPerform != 0) {
+                line.append("\tsetup ").append(millis(firstPerform - init));
+            }
+            if (onTarget != 0) {
+                line.append("\ton target for ").append(millis(end - onTarget));
+            }
+            if (timedOut) {
+                line.append("\tTIMED OUT");
+            } else if (!finished) {
+                line.append("\tUNFINISHED");
+            }
+            GRTLogger.logInfo(line.toString());
+
+            if (finished) {
+                lastDone = Math.max(lastDone, done);
+            }
+        }
+
+        GRTLogger.logInfo(name + "\ttotal " + millis(coveredUntil - start)
+                + "\tidle " + millis(idle)
+                + (dropped > 0 ? "\tdropped " + dropped + " events" : ""));
+    }
+
+    /**
+     * Returns the time of the last event of a kind recorded for a macro
+     * before a limit, or 0 if there is none.
+     */
+    private long lastTime(GRTMacro m, int event, long before) {
+        long t = 0;
+        for (int i = 0; i < count; i++) {
+            if (macros[i] == m && events[i] == event && times[i] <= before) {
+                t = times[i];
+            }
+        }
+        return t;
+    }
+
+    private static String millis(long micros) {
+        return (micros / 1000) + "ms";
+    }
+}
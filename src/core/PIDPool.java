@@ -0,0 +1,173 @@
+package core;
+
+import edu.wpi.first.wpilibj.PIDController;
+import edu.wpi.first.wpilibj.PIDOutput;
+import edu.wpi.first.wpilibj.PIDSource;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Vector;
+import logger.GRTLogger;
+
+/**
+ * Shares PID controllers between the macros that drive a subsystem.
+ *
+ * Every PIDController runs its own timer thread, which is never reclaimed,
+ * so creating one per macro leaks a thread per macro. Instead, macros lease
+ * controllers from a pool for each subsystem while they run, and return them
+ * when they die. A leased controller reads its input from, and writes its
+ * output to, whatever source and output the lessee gave it.
+ *
+ * Since only one macro controls a subsystem at a time (see ResourceArbiter),
+ * each pool only grows to the number of controllers a single macro uses, no
+ * matter how many macros are defined. A pool that would grow past
+ * MAX_PER_POOL means leases are not being released; rather than growing, it
+ * logs an error and refuses the lease.
+ *
+ * @author keshav
+ */
+public final class PIDPool {
+
+    /**
+     * Default PIDController period [s].
+     */
+    public static final double DEFAULT_PERIOD = 0.05;
+    public static final int MAX_PER_POOL = 4;
+    //Free controllers and number created, by subsystem and period
+    private static final Hashtable free = new Hashtable();
+    private static final Hashtable created = new Hashtable();
+
+    private PIDPool() {
+    }
+
+    /**
+     * A pooled controller, and the lessee's source and output it forwards to.
+     */
+    private static final class Pooled {
+
+        private final String key;
+        private final PIDController controller;
+        private volatile PIDSource source;
+        private volatile PIDOutput output;
+
+        private Pooled(String key, double period) {
+            this.key = key;
+            controller = new PIDController(0, 0, 0, forwardSource,
+                    forwardOutput, period);
+        }
+
+        private final PIDSource forwardSource = new PIDSource() {
+
+            public double pidGet() {
+                PIDSource s = source;
+                return s == null ? 0 : s.pidGet();
+            }
+        };
+        private final PIDOutput forwardOutput = new PIDOutput() {
+
+            public void pidWrite(double d) {
+                PIDOutput o = output;
+                if (o != null) {
+                    o.pidWrite(d);
+                }
+            }
+        };
+    }
+
+    /**
+     * A PID controller leased from a pool. Each acquire() returns a new
+     * lease, so a stale lease can never release a controller that has since
+     * been leased again.
+     */
+    public static final class Lease {
+
+        private final Pooled pooled;
+        private boolean released = false;
+
+        private Lease(Pooled pooled) {
+            this.pooled = pooled;
+        }
+
+        /**
+         * Returns the leased controller. It starts out disabled, with no
+         * gains, tolerance or output range set.
+         *
+         * @return PID controller
+         */
+        public PIDController getController() {
+            return pooled.controller;
+        }
+
+        /**
+         * Disables the controller and returns it to its pool. The lease must
+         * not be used afterwards; releasing it again does nothing.
+         */
+        public void release() {
+            synchronized (free) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                //disabled before it can be leased again
+                pooled.controller.disable();
+                pooled.source = null;
+                pooled.output = null;
+                ((Vector) free.get(pooled.key)).addElement(pooled);
+            }
+        }
+    }
+
+    /**
+     * Leases a controller for a subsystem.
+     *
+     * @param subsystem bit of the subsystem the controller drives
+     * @param period controller period [s]
+     * @param source input of the controller
+     * @param output output of the controller
+     * @return disabled controller lease, or null if the pool is exhausted
+     */
+    public static Lease acquire(int subsystem, double period,
+            PIDSource source, PIDOutput output) {
+        String key = subsystem + "@" + period;
+        Pooled pooled;
+        synchronized (free) {
+            Vector pool = (Vector) free.get(key);
+            if (pool == null) {
+                pool = new Vector();
+                free.put(key, pool);
+                created.put(key, new Integer(0));
+            }
+            if (pool.isEmpty()) {
+                int count = ((Integer) created.get(key)).intValue();
+                if (count == MAX_PER_POOL) {
+                    GRTLogger.logError("PID pool " + key
+                            + " exhausted; are leases being released?");
+                    return null;
+                }
+                created.put(key, new Integer(count + 1));
+                pooled = new Pooled(key, period);
+            } else {
+                pooled = (Pooled) pool.elementAt(pool.size() - 1);
+                pool.removeElementAt(pool.size() - 1);
+            }
+        }
+        pooled.controller.reset();
+        pooled.source = source;
+        pooled.output = output;
+        return new Lease(pooled);
+    }
+
+    /**
+     * Returns the number of controllers created, and so of PID threads.
+     *
+     * @return number of pooled controllers
+     */
+    public static int getControllerCount() {
+        int count = 0;
+        synchronized (free) {
+            for (Enumeration en = created.elements(); en.hasMoreElements();) {
+                count += ((Integer) en.nextElement()).intValue();
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,87 @@
+package core;
+
+import java.util.Vector;
+import logger.GRTLogger;
+
+/**
+ * Decides which macro controls each subsystem.
+ *
+ * Subsystems are bits of an int, so there are at most 32. A macro acquires
+ * the subsystems it requires when it starts, and the macro that last
+ * acquired a subsystem controls it: any other macro still holding one of
+ * those subsystems is killed. Subsystems are released when their macro
+ * dies.
+ *
+ * @author keshav
+ */
+public final class ResourceArbiter {
+
+    private static final GRTMacro[] owners = new GRTMacro[32];
+
+    private ResourceArbiter() {
+    }
+
+    /**
+     * Gives a macro control of subsystems, preempting their current owners.
+     *
+     * @param m macro that is starting
+     * @param subsystems bits of the subsystems it requires
+     */
+    static void acquire(GRTMacro m, int subsystems) {
+        if (subsystems == 0) {
+            return;
+        }
+        Vector preempted = new Vector();
+        synchronized (owners) {
+            for (int i = 0; i < owners.length; i++) {
+                if ((subsystems & (1 << i)) == 0) {
+                    continue;
+                }
+                GRTMacro owner = owners[i];
+                if (owner != null && owner != m
+                        && !preempted.contains(owner)) {
+                    preempted.addElement(owner);
+                }
+                owners[i] = m;
+            }
+        }
+        //kill outside the lock, as dying releases subsystems
+        for (int i = 0; i < preempted.size(); i++) {
+            GRTMacro owner = (GRTMacro) preempted.elementAt(i);
+            GRTLogger.logInfo(m.getID() + " preempts " + owner.getID());
+            owner.kill();
+        }
+    }
+
+    /**
+     * Releases every subsystem a macro still controls.
+     *
+     * @param m macro that has died
+     */
+    static void release(GRTMacro m) {
+        synchronized (owners) {
+            for (int i = 0; i < owners.length; i++) {
+                if (owners[i] == m) {
+                    owners[i] = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the macro in control of a subsystem.
+     *
+     * @param subsystem bit of the subsystem
+     * @return macro controlling it, or null if it is free
+     */
+    public static GRTMacro getOwner(int subsystem) {
+        synchronized (owners) {
+            for (int i = 0; i < owners.length; i++) {
+                if (subsystem == (1 << i)) {
+                    return owners[i];
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -1,5 +1,8 @@
 package core;
 
+import edu.wpi.first.wpilibj.Utility;
+import event.listeners.SensorSubscriber;
+
 /**
  * A sensor sends numeric sensor event data. They only send data when running.
  * Sensors can either receive data through events, or by polling. It
@@ -9,6 +12,25 @@ package core;
  * may be fed to a SensorPoller to have the SensorPoller poll the sensors
  * instead.
  *
+ * Every stored datum is stamped with the FPGA time it was sampled at, in
+ * microseconds, so consumers can compute rates and detect stale data without
+ * keeping their own clocks.
+ *
+ * Data is written by a single thread at a time, through update(), and may be
+ * read from any thread. Data stored during an update is staged, and
+ * published all at once when the update ends, under a sequence lock that is
+ * only held for the stores themselves. getStates() copies several data out
+ * under that lock, so readers on other threads see values from the same poll
+ * without taking a monitor, unless they keep colliding with the writer.
+ * Listeners are notified of an update's changes after it is published, so
+ * they see every datum of the update, including the one that changed.
+ *
+ * Listeners are called inline, on the thread that updates the sensor, unless
+ * they registered as asynchronous, in which case changes are posted to an
+ * EventBus and delivered from its thread. Consumers that only need a few
+ * keys can instead subscribe to them, and are then called with the new value
+ * directly, and only for those keys.
+ *
  * @author ajc
  */
 public abstract class Sensor extends GRTLoggedProcess {
@@ -19,6 +41,45 @@ public abstract class Sensor extends GRTLoggedProcess {
     public static final double ERROR = Double.NaN;
     //Instance variables
     private double[] data;
+    private long[] timestamps;
+    private long sampleTime = 0;
+    //Sequence lock: odd while an update is being published
+    private volatile int sequence = 0;
+    private final Object publishLock = new Object();
+    private static final int READ_ATTEMPTS = 3;
+    //Data stored during the update in progress, not yet published
+    private final double[] staged;
+    private final long[] stagedTimes;
+    private final boolean[] isStaged;
+    private final int[] stagedKeys;
+    private int numStaged = 0;
+    private boolean updating = false;
+    //Keys of the published update that listeners are to be told about
+    private final int[] changedKeys;
+    //Asynchronous dispatch
+    private volatile EventBus eventBus = null;
+    private volatile int asyncListeners = 0;
+    private volatile int listenerCount = 0;
+    private volatile int requestedPollPeriod = 0;
+    private volatile boolean idleSlowdown = false;
+    //Coalescing of queued asynchronous events, guarded by the event bus
+    private final boolean[] coalesce;
+    final int[] queuedSlot;
+    private int coalescedCount = 0;
+    //Per-key subscribers, created on first subscription to a key
+    private final ListenerList[] subscribers;
+    private boolean reuseEvents = true;
+    //Change filtering: last propagated values, and per-key deadbands
+    private double[] reported;
+    private double[] thresholds;
+    private double[] hysteresis;
+    private int[] lastDirection;
+    //Updates each datum has spent off its propagated value, unpropagated
+    private int[] suppressed;
+    private int settleUpdates = DEFAULT_SETTLE_UPDATES;
+    private static final int DEFAULT_SETTLE_UPDATES = 10;
+    private int changeCount = 0;
+    private int eventCount = 0;
 
     /**
      * Construct a sensor.
@@ -32,21 +93,290 @@ public abstract class Sensor extends GRTLoggedProcess {
         logInfo("New non-threaded sensor as well!");
         running = true;
         data = new double[numData];
+        timestamps = new long[numData];
+        reported = new double[numData];
+        thresholds = new double[numData];
+        hysteresis = new double[numData];
+        lastDirection = new int[numData];
+        suppressed = new int[numData];
+        subscribers = new ListenerList[numData];
+        staged = new double[numData];
+        stagedTimes = new long[numData];
+        isStaged = new boolean[numData];
+        stagedKeys = new int[numData];
+        changedKeys = new int[numData];
+        coalesce = new boolean[numData];
+        queuedSlot = new int[numData];
+        for (int i = 0; i < numData; i++) {
+            queuedSlot[i] = -1;
+        }
+    }
+
+    /**
+     * Polls this sensor, publishing all of the data it stores as one
+     * consistent update to getStates(), then notifies listeners of what
+     * changed. Owners of a sensor should call this instead of poll().
+     */
+    protected final void update() {
+        updating = true;
+        try {
+            poll();
+        } finally {
+            updating = false;
+            publish();
+        }
     }
 
     /**
-     * Stores a datum, and notifies listeners if the state of it has changed.
+     * Stores a datum. Listeners are notified if it has changed by more than
+     * its change threshold, once the update storing it is published; outside
+     * of an update, it is published at once.
      *
      * @param id key of the data
      * @param datum fresh datum
      */
     protected void setState(int id, double datum) {
-        double previous = data[id];
-        //notify self and state change listeners if the datum has changed
-        if (previous != datum) {
-            notifyListeners(id, datum);
+        if (!isStaged[id]) {
+            isStaged[id] = true;
+            stagedKeys[numStaged++] = id;
+        }
+        staged[id] = datum;
+        stagedTimes[id] = getSampleTime();
+        if (!updating) {
+            publish();
+        }
+    }
+
+    /**
+     * Publishes the staged data to readers, then notifies listeners of the
+     * significant changes.
+     */
+    private void publish() {
+        int numChanged = 0;
+        for (int i = 0; i < numStaged; i++) {
+            int id = stagedKeys[i];
+            double datum = staged[id];
+            boolean changed = data[id] != datum;
+            if (changed) {
+                changeCount++;
+            }
+            if ((changed && isSignificantChange(id, datum))
+                    || hasSettled(id, datum)) {
+                reported[id] = datum;
+                suppressed[id] = 0;
+                changedKeys[numChanged++] = id;
+            }
+        }
+
+        //the write window only covers the stores, never sensor or user code
+        synchronized (publishLock) {
+            sequence++;
+            for (int i = 0; i < numStaged; i++) {
+                int id = stagedKeys[i];
+                data[id] = staged[id];
+                timestamps[id] = stagedTimes[id];
+                isStaged[id] = false;
+            }
+            sequence++;
+        }
+        numStaged = 0;
+
+        for (int i = 0; i < numChanged; i++) {
+            int id = changedKeys[i];
+            double datum = data[id];
+            eventCount++;
+            notifySubscribers(id, datum, timestamps[id]);
+            notifyListeners(id, datum, false);
+            EventBus bus = eventBus;
+            if (asyncListeners > 0 && bus != null) {
+                bus.post(this, id, datum);
+            }
+        }
+    }
+
+    private void notifySubscribers(int id, double datum, long time) {
+        ListenerList list = subscribers[id];
+        if (list == null) {
+            return;
+        }
+        Object[] subs = list.getListeners();
+        for (int i = 0; i < subs.length; i++) {
+            long start = list.startCall();
+            ((SensorSubscriber) subs[i]).stateChanged(this, id, datum, time);
+            list.endCall(subs, i, start);
+        }
+    }
+
+    /**
+     * Subscribes to changes of one datum. Subscribers are called inline, on
+     * the thread updating the sensor, before any listeners, and are subject to
+     * the same change threshold.
+     *
+     * @param id key of the data
+     * @param s subscriber to call when the datum changes
+     */
+    public void subscribe(int id, SensorSubscriber s) {
+        if (id < 0 || id >= subscribers.length) {
+            return;
+        }
+        synchronized (subscribers) {
+            if (subscribers[id] == null) {
+                subscribers[id] = new ListenerList(this);
+            }
+        }
+        subscribers[id].add(s);
+    }
+
+    /**
+     * Cancels a subscription to one datum.
+     *
+     * @param id key of the data
+     * @param s subscriber to remove
+     */
+    public void unsubscribe(int id, SensorSubscriber s) {
+        if (id >= 0 && id < subscribers.length && subscribers[id] != null) {
+            subscribers[id].remove(s);
+        }
+    }
+
+    /**
+     * Sets the time stamped on data stored during the current poll. Pollers
+     * read the clock once per tick and share it between all of their sensors;
+     * pass 0 afterwards so data stored outside a poll reads the clock itself.
+     *
+     * @param time FPGA time of the poll [us], or 0 to read the clock
+     */
+    void setSampleTime(long time) {
+        sampleTime = time;
+    }
+
+    /**
+     * Returns the time data being stored now will be stamped with: the time of
+     * the current poll, or the current FPGA time outside of one.
+     *
+     * @return sample time [us]
+     */
+    protected long getSampleTime() {
+        return sampleTime != 0 ? sampleTime : Utility.getFPGATime();
+    }
+
+    /**
+     * Checks a changed datum against the last value sent to listeners. A
+     * change must be at least the key's threshold, plus its hysteresis band
+     * if it reverses the direction of the last propagated change.
+     */
+    private boolean isSignificantChange(int id, double datum) {
+        double delta = datum - reported[id];
+        //changes to or from ERROR always go through
+        if (Double.isNaN(delta)) {
+            lastDirection[id] = 0;
+            return true;
+        }
+
+        int direction = delta > 0 ? 1 : -1;
+        double band = thresholds[id];
+        if (direction == -lastDirection[id]) {
+            band += hysteresis[id];
+        }
+
+        if (Math.abs(delta) < band) {
+            return false;
+        }
+        lastDirection[id] = direction;
+        return true;
+    }
+
+    /**
+     * Checks whether a datum has stayed off the last value sent to listeners,
+     * by less than its threshold, for long enough that listeners should be
+     * told where it came to rest.
+     */
+    private boolean hasSettled(int id, double datum) {
+        double delta = datum - reported[id];
+        if (delta == 0 || Double.isNaN(delta) || settleUpdates == 0) {
+            //NaN only when either is ERROR, and changes to or from ERROR
+            //are always propagated
+            suppressed[id] = 0;
+            return false;
+        }
+        if (++suppressed[id] < settleUpdates) {
+            return false;
+        }
+        lastDirection[id] = delta > 0 ? 1 : -1;
+        return true;
+    }
+
+    /**
+     * Sets the smallest change in a datum that is propagated to listeners.
+     * Smaller changes are still stored, and so are visible to getState(), but
+     * only generate an event once the datum has stayed off the propagated
+     * value for a while (see setSettleUpdates()). A threshold of 0 (the
+     * default) propagates every change.
+     *
+     * @param id key of the data
+     * @param epsilon minimum change from the last propagated value
+     */
+    public void setChangeThreshold(int id, double epsilon) {
+        if (id >= 0 && id < thresholds.length) {
+            thresholds[id] = Math.abs(epsilon);
+        }
+    }
+
+    /**
+     * Sets the hysteresis band of a datum. A change that reverses direction
+     * relative to the last propagated change must exceed the change threshold
+     * by this much, which keeps noise around a resting value from flickering.
+     *
+     * @param id key of the data
+     * @param band additional change needed when reversing direction
+     */
+    public void setHysteresis(int id, double band) {
+        if (id >= 0 && id < hysteresis.length) {
+            hysteresis[id] = Math.abs(band);
         }
-        data[id] = datum;
+    }
+
+    /**
+     * Sets how many updates a datum may differ from the last value sent to
+     * listeners before it is sent anyway. Without this, a datum that comes to
+     * rest within its change threshold of the last propagated value would
+     * never be propagated, and listeners would be left with a stale value.
+     *
+     * @param updates number of updates, or 0 to only ever propagate changes
+     * that pass the threshold
+     */
+    public void setSettleUpdates(int updates) {
+        settleUpdates = Math.max(0, updates);
+    }
+
+    /**
+     * Returns how many times a datum of this sensor has changed.
+     *
+     * @return number of changes seen by setState()
+     */
+    public int getChangeCount() {
+        return changeCount;
+    }
+
+    /**
+     * Returns how many changes were propagated to listeners.
+     *
+     * @return number of notifications sent
+     */
+    public int getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Logs how many changes the change thresholds kept from becoming events.
+     */
+    public void logEventStatistics() {
+        int suppressed = changeCount - eventCount;
+        int percent = changeCount == 0 ? 0
+                : (int) (100.0 * suppressed / changeCount);
+        logInfo("Events: " + eventCount + " of " + changeCount
+                + " changes sent, " + suppressed + " suppressed (" + percent
+                + "% reduction)");
     }
 
     /**
@@ -62,6 +392,138 @@ public abstract class Sensor extends GRTLoggedProcess {
         return data[id];
     }
 
+    /**
+     * Copies several data into an array, all from the same update. If an
+     * update is being published on another thread, waits for it to finish
+     * rather than return a mix of old and new values. Unknown keys read as
+     * ERROR.
+     *
+     * @param ids keys of the data to read
+     * @param values array to copy data into, at least as long as ids
+     */
+    public void getStates(int[] ids, double[] values) {
+        getStates(ids, values, null);
+    }
+
+    /**
+     * Copies several data and their sample times into arrays, all from the
+     * same update.
+     *
+     * @param ids keys of the data to read
+     * @param values array to copy data into, at least as long as ids
+     * @param times array to copy sample times [us] into, or null
+     */
+    public void getStates(int[] ids, double[] values, long[] times) {
+        for (int attempt = 0; attempt < READ_ATTEMPTS; attempt++) {
+            int seq = sequence;
+            if ((seq & 1) == 0) {
+                copyStates(ids, values, times);
+                if (sequence == seq) {
+                    return;
+                }
+            }
+        }
+        //spinning would starve a writer of lower priority; block instead, so
+        //that it can finish publishing
+        synchronized (publishLock) {
+            copyStates(ids, values, times);
+        }
+    }
+
+    /**
+     * Copies every datum of this sensor, and optionally their sample times,
+     * into arrays, all from the same update.
+     *
+     * @param values array to copy data into
+     * @param times array to copy sample times [us] into, or null
+     * @param offset index in the arrays to copy the first datum to
+     */
+    public void getAllStates(double[] values, long[] times, int offset) {
+        for (int attempt = 0; attempt < READ_ATTEMPTS; attempt++) {
+            int seq = sequence;
+            if ((seq & 1) == 0) {
+                copyAllStates(values, times, offset);
+                if (sequence == seq) {
+                    return;
+                }
+            }
+        }
+        synchronized (publishLock) {
+            copyAllStates(values, times, offset);
+        }
+    }
+
+    private void copyAllStates(double[] values, long[] times, int offset) {
+        System.arraycopy(data, 0, values, offset, data.length);
+        if (times != null) {
+            System.arraycopy(timestamps, 0, times, offset, data.length);
+        }
+    }
+
+    private void copyStates(int[] ids, double[] values, long[] times) {
+        for (int i = 0; i < ids.length; i++) {
+            int id = ids[i];
+            boolean valid = id >= 0 && id < data.length;
+            values[i] = valid ? data[id] : ERROR;
+            if (times != null) {
+                times[i] = valid ? timestamps[id] : 0;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of times this sensor has published data: once per
+     * update, and once per datum stored outside of an update.
+     *
+     * @return update count
+     */
+    public int getUpdateCount() {
+        return sequence >>> 1;
+    }
+
+    /**
+     * Retrieves the time a datum was last sampled, whether or not it changed.
+     *
+     * @param id numeric identifier of data.
+     * @return FPGA time of the last sample [us], or 0 if never sampled.
+     */
+    public long getTimestamp(int id) {
+        if (id >= timestamps.length || id < 0) {
+            return 0;
+        }
+        return timestamps[id];
+    }
+
+    /**
+     * Returns how long ago a datum was last sampled. The age is taken modulo
+     * the wrap of the FPGA clock (see GRTLoggedProcess.fpgaDelta()), so it is
+     * only meaningful up to about 35 minutes, past which it turns negative.
+     *
+     * @param id numeric identifier of data.
+     * @return age of the datum [us], or Long.MAX_VALUE if never sampled.
+     */
+    public long getAge(int id) {
+        long stamp = getTimestamp(id);
+        if (stamp == 0) {
+            return Long.MAX_VALUE;
+        }
+        return fpgaDelta(stamp, Utility.getFPGATime());
+    }
+
+    /**
+     * Checks whether a datum is older than some maximum age, for instance
+     * because its sensor is no longer being polled.
+     *
+     * @param id numeric identifier of data.
+     * @param maxAge oldest acceptable age [us]
+     * @return true if the datum was sampled more than maxAge ago, or never.
+     */
+    public boolean isStale(int id, long maxAge) {
+        long age = getAge(id);
+        //an age from the future means the datum is over half a clock wrap old
+        return age < 0 || age > maxAge;
+    }
+
     /**
      * Returns the number of different data stored by this sensor.
      *
@@ -72,10 +534,174 @@ public abstract class Sensor extends GRTLoggedProcess {
     }
 
     /**
-     * Calls the listener events based on what has changed
+     * Sets whether this sensor dispatches flyweight events. When enabled (the
+     * default), each event type is backed by a single instance that is updated
+     * in place before every dispatch, so dispatching does not allocate.
+     * Disable it if a listener needs to keep events around after its callback
+     * returns.
+     *
+     * @param reuse true to reuse events, false to allocate one per dispatch
+     */
+    public void setEventReuse(boolean reuse) {
+        reuseEvents = reuse;
+    }
+
+    /**
+     * Returns whether this sensor dispatches flyweight events.
+     *
+     * @return true if events are reused between dispatches
+     */
+    public boolean reusesEvents() {
+        return reuseEvents;
+    }
+
+    /**
+     * Sets the event bus that asynchronous listeners are called from. By
+     * default, sensors use the shared bus returned by EventBus.getDefault().
+     *
+     * @param bus bus to post changes to, or null for the default bus
+     */
+    public synchronized void setEventBus(EventBus bus) {
+        if (bus == null && asyncListeners > 0) {
+            bus = EventBus.getDefault();
+        }
+        eventBus = bus;
+    }
+
+    /**
+     * Sets whether a datum is continuous, so that asynchronous listeners only
+     * need its latest value. If a change to a coalescing datum is posted while
+     * an earlier change is still waiting on the event bus, the waiting change
+     * is updated in place rather than queueing another one.
+     *
+     * @param id key of the data
+     * @param coalescing true to deliver only the latest value
+     */
+    public void setCoalescing(int id, boolean coalescing) {
+        if (id >= 0 && id < coalesce.length) {
+            coalesce[id] = coalescing;
+        }
+    }
+
+    /**
+     * Returns whether changes to a datum are coalesced on the event bus.
+     *
+     * @param id key of the data
+     * @return true if only the latest value is delivered
+     */
+    public boolean isCoalescing(int id) {
+        return id >= 0 && id < coalesce.length && coalesce[id];
+    }
+
+    /**
+     * Returns how many intermediate values were replaced by newer ones before
+     * being delivered to asynchronous listeners.
+     *
+     * @return number of coalesced changes
+     */
+    public int getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    /**
+     * Called by the event bus, with its lock held, when a queued change is
+     * replaced by a newer one.
+     */
+    void changeCoalesced() {
+        coalescedCount++;
+    }
+
+    synchronized void listenerAdded(boolean async) {
+        if (async) {
+            if (eventBus == null) {
+                eventBus = EventBus.getDefault();
+            }
+            asyncListeners++;
+        }
+        listenerCount++;
+    }
+
+    synchronized void listenerRemoved(boolean async) {
+        if (async) {
+            asyncListeners--;
+        }
+        listenerCount--;
+    }
+
+    /**
+     * Returns whether anything consumes this sensor's data: a listener or
+     * subscriber in either lane, or a reader that has requested a poll
+     * period. Pollers may poll sensors without consumers less often, if
+     * they allow it (see setIdleSlowdown()).
+     *
+     * @return true if the sensor's data is being used
+     */
+    public boolean hasConsumers() {
+        return listenerCount > 0 || requestedPollPeriod > 0;
+    }
+
+    /**
+     * Sets whether pollers may poll this sensor less often while it has no
+     * consumers. Off by default: code that reads a sensor's state directly
+     * is invisible to hasConsumers() unless it requests a poll period, so
+     * only sensors whose data is never read directly should allow it.
+     *
+     * @param slowdown true to allow polling less often while unused
+     */
+    public void setIdleSlowdown(boolean slowdown) {
+        idleSlowdown = slowdown;
+    }
+
+    /**
+     * Returns whether pollers may poll this sensor less often while it has
+     * no consumers.
+     *
+     * @return true if idle slowdown is allowed
+     */
+    public boolean hasIdleSlowdown() {
+        return idleSlowdown;
+    }
+
+    /**
+     * Requests that this sensor be polled at least this often. Code that
+     * reads the sensor's state directly, rather than listening to it, should
+     * request a period so that a poller does not treat the sensor as idle.
+     * Replaces any earlier request.
+     *
+     * @param period longest acceptable time between polls [ms], or 0 to
+     * withdraw the request
+     */
+    public void requestPollPeriod(int period) {
+        requestedPollPeriod = Math.max(0, period);
+    }
+
+    /**
+     * Returns the poll period requested by direct readers of this sensor.
+     *
+     * @return requested period [ms], or 0 if none is requested
+     */
+    public int getRequestedPollPeriod() {
+        return requestedPollPeriod;
+    }
+
+    /**
+     * Called by an EventBus to deliver a posted change to the asynchronous
+     * listeners.
+     */
+    final void dispatchAsync(int id, double datum) {
+        notifyListeners(id, datum, true);
+    }
+
+    /**
+     * Calls the listener events based on what has changed. Each lane is
+     * always dispatched from a single thread, so each lane may keep its own
+     * flyweight events.
      *
      * @param id the key of the data that changed
      * @param newDatum the datum's new value
+     * @param async true to call the asynchronous listeners, false to call the
+     * inline ones
      */
-    protected abstract void notifyListeners(int id, double newDatum);
+    protected abstract void notifyListeners(int id, double newDatum,
+            boolean async);
 }
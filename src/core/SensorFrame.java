@@ -0,0 +1,164 @@
+package core;
+
+/**
+ * A snapshot of every sensor polled by a SensorPoller, captured at the end of
+ * a poll. All data of a sensor come from the same update, but a sensor polled
+ * at a divisor, or skipped while idle, keeps the data of its last update, so
+ * data in the same frame may have been sampled on different ticks. Each datum
+ * therefore carries its own sample time; the frame's timestamp is only when
+ * the poll that captured it started.
+ *
+ * Frames are preallocated and refilled in place on every poll, so they should
+ * only be read from within SensorFrameListener.frameUpdated(); copy out any
+ * values that are needed later.
+ *
+ * @author ajc
+ */
+public class SensorFrame {
+
+    private final Sensor[] sensors;
+    private final int[] offsets;
+    private final double[] values;
+    private final long[] times;
+    private long timestamp = 0;
+    private int sequence = 0;
+
+    /**
+     * Creates a frame with room for all data of the given sensors.
+     *
+     * @param sensors sensors to capture, in poll order
+     */
+    SensorFrame(Sensor[] sensors) {
+        this.sensors = sensors;
+        offsets = new int[sensors.length];
+
+        int size = 0;
+        for (int i = 0; i < sensors.length; i++) {
+            offsets[i] = size;
+            size += sensors[i].numData();
+        }
+        values = new double[size];
+        times = new long[size];
+    }
+
+    /**
+     * Copies the current state of every sensor into this frame.
+     *
+     * @param timestamp FPGA time of the poll, in microseconds
+     */
+    void capture(long timestamp) {
+        for (int i = 0; i < sensors.length; i++) {
+            //all data of a sensor come from the same update
+            sensors[i].getAllStates(values, times, offsets[i]);
+        }
+        this.timestamp = timestamp;
+        sequence++;
+    }
+
+    /**
+     * Returns the index of a sensor in this frame.
+     *
+     * @param s sensor to look up
+     * @return index of the sensor, or -1 if it is not part of this frame
+     */
+    public int indexOf(Sensor s) {
+        for (int i = 0; i < sensors.length; i++) {
+            if (sensors[i] == s) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Retrieves a datum of a sensor, as sampled for this frame.
+     *
+     * @param s sensor to read
+     * @param key key of the data
+     * @return sampled datum, or Sensor.ERROR if the sensor or key is unknown
+     */
+    public double getState(Sensor s, int key) {
+        return getState(indexOf(s), key);
+    }
+
+    /**
+     * Retrieves a datum of a sensor, as sampled for this frame.
+     *
+     * @param index index of the sensor, from indexOf()
+     * @param key key of the data
+     * @return sampled datum, or Sensor.ERROR if the sensor or key is unknown
+     */
+    public double getState(int index, int key) {
+        if (index < 0 || index >= sensors.length
+                || key < 0 || key >= sensors[index].numData()) {
+            return Sensor.ERROR;
+        }
+        return values[offsets[index] + key];
+    }
+
+    /**
+     * Returns when a datum in this frame was sampled.
+     *
+     * @param s sensor to read
+     * @param key key of the data
+     * @return FPGA time of the sample [us], or 0 if the sensor or key is
+     * unknown or the datum was never sampled
+     */
+    public long getSampleTime(Sensor s, int key) {
+        return getSampleTime(indexOf(s), key);
+    }
+
+    /**
+     * Returns when a datum in this frame was sampled.
+     *
+     * @param index index of the sensor, from indexOf()
+     * @param key key of the data
+     * @return FPGA time of the sample [us], or 0 if the sensor or key is
+     * unknown or the datum was never sampled
+     */
+    public long getSampleTime(int index, int key) {
+        if (index < 0 || index >= sensors.length
+                || key < 0 || key >= sensors[index].numData()) {
+            return 0;
+        }
+        return times[offsets[index] + key];
+    }
+
+    /**
+     * Returns the number of sensors captured by this frame.
+     *
+     * @return number of sensors
+     */
+    public int numSensors() {
+        return sensors.length;
+    }
+
+    /**
+     * Returns a sensor captured by this frame.
+     *
+     * @param index index of the sensor
+     * @return the sensor
+     */
+    public Sensor getSensor(int index) {
+        return sensors[index];
+    }
+
+    /**
+     * Returns when the poll that captured this frame started. Use
+     * getSampleTime() for when each datum was sampled.
+     *
+     * @return FPGA time at the start of the poll, in microseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the number of this frame. It increases by one every poll.
+     *
+     * @return frame sequence number
+     */
+    public int getSequence() {
+        return sequence;
+    }
+}
@@ -1,19 +1,54 @@
 package core;
 
-import java.util.Enumeration;
+import edu.wpi.first.wpilibj.Utility;
+import event.events.SensorEvent;
+import event.listeners.SensorFrameListener;
 import java.util.Vector;
 
 /**
  * A class that polls all sensors at once.
  * Calls sensors' poll() method periodically.
  *
+ * Sensors fire their own events as they are polled. Frame listeners instead
+ * receive a single SensorFrame once per poll, holding the latest data of
+ * every sensor along with when each datum was sampled.
+ *
+ * Sensors need not all be polled every tick. A sensor added with a divisor
+ * of n is polled every nth tick, at a phase offset within those n ticks.
+ * Unless given a phase, the sensor is put on the offset shared with the
+ * fewest other slow sensors, so that slow sensors spread across ticks
+ * rather than all landing on the same one.
+ *
+ * Polling also adapts to how sensors are used. A sensor that allows it (see
+ * Sensor.setIdleSlowdown()) and has no consumers is polled idleDivisor times
+ * less often, or not at all. While the poller has frame listeners, every
+ * sensor counts as consumed, since the frames include them all. A sensor whose data has just
+ * changed significantly is polled every tick for a short hold, so that fast
+ * movements are tracked closely, and a reader may request a shorter period
+ * than the sensor's divisor gives.
+ *
  * @author Andrew Duffy <gerberduffy@gmail.com>
  */
 public class SensorPoller extends GRTLoggedProcess{
 
     private Vector sensors;
+    private final Vector rates = new Vector();  //{divisor, phase} per sensor
+    private volatile Schedule schedule;
+    private int tick = 0;
+    private final int pollTime;
+    private volatile int idleDivisor = DEFAULT_IDLE_DIVISOR;
+    private volatile int activeHold = DEFAULT_ACTIVE_HOLD;
+    private int idlePollsSkipped = 0;
+    private int boostedPolls = 0;
     
     private final static int DEFAULT_POLLTIME = 10;
+    private final static int DEFAULT_IDLE_DIVISOR = 10;
+    private final static int DEFAULT_ACTIVE_HOLD = 10;
+
+    private int lastTickAllocations = 0;
+    private int allocatingTicks = 0;
+
+    private final ListenerList frameListeners = new ListenerList();
 
     /**
      * Creates a new SensorPoller with no sensors, polling every {@value 
@@ -49,16 +84,57 @@ public class SensorPoller extends GRTLoggedProcess{
      */
     public SensorPoller(Vector sensors, int pollTime) {
         super("Sensor poller", pollTime);
+        this.pollTime = pollTime;
         this.sensors = sensors;
+        for (int i = 0; i < sensors.size(); i++) {
+            rates.addElement(new int[] {1, 0});
+        }
+        rebuildSchedule();
+        //stale sensor data is worse than a skipped poll
+        setFixedRate(true);
+        setOverrunPolicy(SKIP);
+        setPriorityClass(SENSING);
     }
 
     /**
-     * Adds a sensor to the vector of sensors.
+     * Adds a sensor to the vector of sensors, polled every tick.
      * 
      * @param s sensor to poll 
      */
     public void addSensor(Sensor s) {
+        addSensor(s, 1, 0);
+    }
+
+    /**
+     * Adds a sensor that is polled every divisor ticks, at the least loaded
+     * phase.
+     *
+     * @param s sensor to poll
+     * @param divisor number of ticks per poll of this sensor
+     */
+    public void addSensor(Sensor s, int divisor) {
+        if (divisor <= 1) {
+            addSensor(s, 1, 0);
+        } else {
+            synchronized (this) {
+                addSensor(s, divisor, leastLoadedPhase(divisor));
+            }
+        }
+    }
+
+    /**
+     * Adds a sensor that is polled every divisor ticks, on the ticks where
+     * tick % divisor == phase.
+     *
+     * @param s sensor to poll
+     * @param divisor number of ticks per poll of this sensor
+     * @param phase which of those ticks to poll on, from 0 to divisor - 1
+     */
+    public synchronized void addSensor(Sensor s, int divisor, int phase) {
+        divisor = Math.max(1, divisor);
         sensors.addElement(s);
+        rates.addElement(new int[] {divisor, phase % divisor});
+        rebuildSchedule();
     }
     
     /**
@@ -66,13 +142,237 @@ public class SensorPoller extends GRTLoggedProcess{
      * 
      * @param s sensor to not poll
      */
-    public void removeSensor(Sensor s) {
-        sensors.removeElement(s);
+    public synchronized void removeSensor(Sensor s) {
+        int i = sensors.indexOf(s);
+        if (i >= 0) {
+            sensors.removeElementAt(i);
+            rates.removeElementAt(i);
+            rebuildSchedule();
+        }
+    }
+
+    /**
+     * Sets how much less often sensors without consumers are polled, among
+     * those that allow idle slowdown.
+     *
+     * @param divisor factor to multiply an idle sensor's divisor by, 1 to
+     * poll idle sensors normally, or 0 to not poll them at all
+     */
+    public void setIdleDivisor(int divisor) {
+        idleDivisor = Math.max(0, divisor);
+    }
+
+    /**
+     * Sets how long a sensor is polled every tick after its data changes
+     * significantly.
+     *
+     * @param ticks number of ticks to poll a changing sensor every tick, or 0
+     * to always poll sensors at their own divisor
+     */
+    public void setActiveHold(int ticks) {
+        activeHold = Math.max(0, ticks);
+    }
+
+    /**
+     * Finds the phase for a new slow sensor that coincides with the fewest
+     * existing slow sensors. Two sensors with divisors a and b and phases p
+     * and q are polled on the same tick at some point iff p and q are equal
+     * modulo gcd(a, b).
+     */
+    private int leastLoadedPhase(int divisor) {
+        int best = 0;
+        int bestLoad = Integer.MAX_VALUE;
+        for (int phase = 0; phase < divisor; phase++) {
+            int load = 0;
+            for (int i = 0; i < rates.size(); i++) {
+                int[] rate = (int[]) rates.elementAt(i);
+                if (rate[0] > 1 && (phase - rate[1]) % gcd(divisor, rate[0]) == 0) {
+                    load++;
+                }
+            }
+            if (load < bestLoad) {
+                best = phase;
+                bestLoad = load;
+            }
+        }
+        return best;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /**
+     * Rebuilds the arrays polled from, so that poll() never sees a partially
+     * updated set of sensors. Must be called with this poller locked.
+     */
+    private void rebuildSchedule() {
+        Schedule s = new Schedule(sensors.size());
+        sensors.copyInto(s.sensors);
+        for (int i = 0; i < s.sensors.length; i++) {
+            int[] rate = (int[]) rates.elementAt(i);
+            s.divisors[i] = rate[0];
+            s.phases[i] = rate[1];
+        }
+        schedule = s;
+    }
+
+    private static class Schedule {
+
+        final Sensor[] sensors;
+        final int[] divisors;
+        final int[] phases;
+        //Event count at the last poll, and tick until which to poll every tick
+        final int[] lastEvents;
+        final int[] activeUntil;
+        SensorFrame frame = null;  //built on first use
+
+        Schedule(int size) {
+            sensors = new Sensor[size];
+            divisors = new int[size];
+            phases = new int[size];
+            lastEvents = new int[size];
+            activeUntil = new int[size];
+        }
+    }
+
+    /**
+     * Adds a frame listener, which is given every sensor's state once per
+     * poll.
+     *
+     * @param l listener to add
+     */
+    public void addFrameListener(SensorFrameListener l) {
+        frameListeners.add(l);
+    }
+
+    /**
+     * Removes a frame listener.
+     *
+     * @param l listener to remove
+     */
+    public void removeFrameListener(SensorFrameListener l) {
+        frameListeners.remove(l);
     }
     
     protected void poll() {
-        for (Enumeration en = sensors.elements(); en.hasMoreElements();) {
-            ((Sensor) en.nextElement()).poll();
+        int allocationsBefore = SensorEvent.getAllocationCount();
+        long timestamp = Utility.getFPGATime();
+
+        Schedule sched = schedule;
+        Object[] listeners = frameListeners.getListeners();
+        //frame listeners read every sensor, so none of them is idle
+        int idle = listeners.length > 0 ? 1 : idleDivisor;
+        int hold = activeHold;
+        for (int i = 0; i < sched.sensors.length; i++) {
+            Sensor s = sched.sensors[i];
+            boolean nominal = tick % sched.divisors[i] == sched.phases[i];
+            int divisor = effectiveDivisor(sched, i, idle);
+            if (divisor == 0 || tick % divisor != sched.phases[i] % divisor) {
+                if (nominal) {
+                    idlePollsSkipped++;
+                }
+                continue;
+            }
+            if (!nominal) {
+                boostedPolls++;
+            }
+
+            s.setSampleTime(timestamp);
+            s.update();
+            s.setSampleTime(0);
+
+            int events = s.getEventCount();
+            if (events != sched.lastEvents[i]) {
+                sched.lastEvents[i] = events;
+                sched.activeUntil[i] = tick + hold;
+            }
+        }
+        tick++;
+        if (tick < 0) {
+            tick = 0;
         }
+
+        if (listeners.length > 0) {
+            SensorFrame f = sched.frame;
+            if (f == null) {
+                f = sched.frame = new SensorFrame(sched.sensors);
+            }
+            f.capture(timestamp);
+            for (int i = 0; i < listeners.length; i++) {
+                long start = frameListeners.startCall();
+                ((SensorFrameListener) listeners[i]).frameUpdated(f);
+                frameListeners.endCall(listeners, i, start);
+            }
+        }
+
+        lastTickAllocations =
+                SensorEvent.getAllocationCount() - allocationsBefore;
+        if (lastTickAllocations != 0) {
+            allocatingTicks++;
+        }
+    }
+
+    /**
+     * Returns the divisor to poll a sensor at on this tick, or 0 to not poll
+     * it at all.
+     */
+    private int effectiveDivisor(Schedule sched, int i, int idle) {
+        Sensor s = sched.sensors[i];
+        int divisor = sched.divisors[i];
+        if (s.hasIdleSlowdown() && !s.hasConsumers()) {
+            return divisor * idle;
+        }
+        if (tick < sched.activeUntil[i]) {
+            return 1;
+        }
+        int requested = s.getRequestedPollPeriod();
+        if (requested > 0) {
+            divisor = Math.min(divisor, Math.max(1, requested / pollTime));
+        }
+        return divisor;
+    }
+
+    /**
+     * Logs event statistics of every polled sensor.
+     */
+    public void logEventStatistics() {
+        for (int i = 0; i < sensors.size(); i++) {
+            ((Sensor) sensors.elementAt(i)).logEventStatistics();
+        }
+        logInfo("Missed deadlines: " + getMissedDeadlines() + ", skipped "
+                + getSkippedPolls() + " polls");
+        logInfo("Polls skipped for idle sensors: " + idlePollsSkipped
+                + ", extra polls for active sensors: " + boostedPolls);
+        logInfo("Polls during which sensor events were allocated: "
+                + allocatingTicks + ", events allocated in all: "
+                + SensorEvent.getAllocationCount());
+    }
+
+    /**
+     * Returns how many sensor events were allocated, by any thread, while the
+     * last poll ran. The count is process-wide, so it includes events that
+     * other threads, such as an event bus, allocated in the meantime; it is
+     * only an upper bound on what the poll itself allocated.
+     *
+     * @return number of events allocated during the last poll
+     */
+    public int getLastTickAllocations() {
+        return lastTickAllocations;
+    }
+
+    /**
+     * Returns how many polls have seen at least one sensor event allocated
+     * while they ran, by any thread (see getLastTickAllocations()).
+     *
+     * @return number of polls during which events were allocated
+     */
+    public int getAllocatingTicks() {
+        return allocatingTicks;
     }
 }
@@ -0,0 +1,117 @@
+package core;
+
+import java.util.Vector;
+import logger.GRTLogger;
+
+/**
+ * Keeps track of the threads the framework starts.
+ *
+ * Threads started through the registry are listed from just before they
+ * start until they finish, so that their owners can wait, with a timeout,
+ * for a stopped thread to actually exit, and so that duplicate or leaked
+ * threads show up in the log after a disable/enable cycle.
+ *
+ * @author ajc
+ */
+public final class ThreadRegistry {
+
+    private static final Vector threads = new Vector();
+
+    private ThreadRegistry() {
+    }
+
+    /**
+     * Starts a registered thread. The thread is unregistered when its
+     * runnable returns or throws.
+     *
+     * @param r code for the thread to run
+     * @param name name of the thread
+     * @param priority thread priority to start at
+     * @return the started thread
+     */
+    public static Thread start(final Runnable r, String name, int priority) {
+        Thread t = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    r.run();
+                } finally {
+                    unregister(Thread.currentThread());
+                }
+            }
+        }, name);
+        t.setPriority(priority);
+        synchronized (threads) {
+            threads.addElement(t);
+        }
+        t.start();
+        return t;
+    }
+
+    private static void unregister(Thread t) {
+        synchronized (threads) {
+            threads.removeElement(t);
+            threads.notifyAll();
+        }
+    }
+
+    /**
+     * Waits for a registered thread to finish.
+     *
+     * @param t thread to wait for
+     * @param timeout longest time to wait [ms]
+     * @return true if the thread has finished, false if it is still running
+     * after the timeout
+     */
+    public static boolean awaitExit(Thread t, long timeout) {
+        long deadline = System.currentTimeMillis() + timeout;
+        synchronized (threads) {
+            while (threads.contains(t)) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    threads.wait(remaining);
+                } catch (InterruptedException e) {
+                    return !threads.contains(t);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of registered threads that have not finished.
+     *
+     * @return number of live framework threads
+     */
+    public static int getLiveCount() {
+        return threads.size();
+    }
+
+    /**
+     * Returns the registered threads that have not finished.
+     *
+     * @return live framework threads
+     */
+    public static Thread[] getLiveThreads() {
+        synchronized (threads) {
+            Thread[] live = new Thread[threads.size()];
+            threads.copyInto(live);
+            return live;
+        }
+    }
+
+    /**
+     * Logs every live framework thread.
+     */
+    public static void logLiveThreads() {
+        Thread[] live = getLiveThreads();
+        StringBuffer line = new StringBuffer("Live threads (");
+        line.append(live.length).append("):");
+        for (int i = 0; i < live.length; i++) {
+            line.append(' ').append(live[i].getName());
+        }
+        GRTLogger.logInfo(line.toString());
+    }
+}
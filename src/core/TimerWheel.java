@@ -0,0 +1,229 @@
+package core;
+
+import edu.wpi.first.wpilibj.Utility;
+
+/**
+ * A hashed timer wheel, for running callbacks after a delay without tying up
+ * a thread per wait.
+ *
+ * Time is divided into ticks, and pending timeouts are kept in a ring of
+ * slots, each a doubly linked list of the timeouts whose deadline tick maps
+ * to that slot. Scheduling and cancelling are therefore O(1), and each tick
+ * only looks at one slot. A timeout further away than one turn of the wheel
+ * simply stays in its slot until its deadline tick comes around.
+ *
+ * The wheel is itself a polling process, advanced once per tick on the
+ * scheduler at CONTROL priority. Callbacks run on the wheel's thread and
+ * must not block.
+ *
+ * @author ajc
+ */
+public class TimerWheel extends GRTLoggedProcess {
+
+    public static final int DEFAULT_TICK = 10;
+    public static final int DEFAULT_SLOTS = 256;
+    private static TimerWheel defaultWheel = null;
+    //Sentinel heads of each slot's list
+    private final Timeout[] slots;
+    private final int mask;
+    private final long tickLength;
+    //Time the wheel has run for, accumulated from unsigned deltas of the
+    //32-bit FPGA clock so that it keeps counting when the clock wraps [us]
+    private long elapsed = 0;
+    private long lastReading;
+    private long currentTick = 0;
+    private int pending = 0;
+
+    /**
+     * A callback scheduled on a timer wheel.
+     */
+    public static final class Timeout {
+
+        private static final int PENDING = 0;
+        private static final int EXPIRED = 1;
+        private static final int CANCELLED = 2;
+        private final TimerWheel wheel;
+        private final Runnable task;
+        private long deadline;
+        private int state = PENDING;
+        private Timeout prev, next;
+        private Timeout nextExpired;
+
+        private Timeout(TimerWheel wheel, Runnable task) {
+            this.wheel = wheel;
+            this.task = task;
+        }
+
+        /**
+         * Cancels the timeout, if it has not run yet.
+         *
+         * @return true if cancelled, false if it has already run or been
+         * cancelled
+         */
+        public boolean cancel() {
+            synchronized (wheel) {
+                if (state != PENDING) {
+                    return false;
+                }
+                state = CANCELLED;
+                wheel.unlink(this);
+                return true;
+            }
+        }
+
+        /**
+         * Returns whether the callback has been run.
+         *
+         * @return true if expired
+         */
+        public boolean isExpired() {
+            synchronized (wheel) {
+                return state == EXPIRED;
+            }
+        }
+
+        /**
+         * Returns whether the timeout was cancelled before it ran.
+         *
+         * @return true if cancelled
+         */
+        public boolean isCancelled() {
+            synchronized (wheel) {
+                return state == CANCELLED;
+            }
+        }
+    }
+
+    /**
+     * Creates a timer wheel. It does not run timeouts until it starts polling.
+     *
+     * @param name name of the wheel
+     * @param tick length of a tick [ms]
+     * @param numSlots number of slots, rounded up to a power of two
+     */
+    public TimerWheel(String name, int tick, int numSlots) {
+        super(name, tick);
+        setPriorityClass(CONTROL);
+        setFixedRate(true);
+        setOverrunPolicy(SKIP);
+        int size = 1;
+        while (size < numSlots) {
+            size <<= 1;
+        }
+        slots = new Timeout[size];
+        for (int i = 0; i < size; i++) {
+            Timeout head = new Timeout(this, null);
+            head.prev = head.next = head;
+            slots[i] = head;
+        }
+        mask = size - 1;
+        tickLength = tick * 1000L;
+        lastReading = Utility.getFPGATime();
+    }
+
+    /**
+     * Returns the wheel shared by the framework, starting it the first time.
+     *
+     * @return default timer wheel
+     */
+    public static synchronized TimerWheel getDefault() {
+        if (defaultWheel == null) {
+            defaultWheel = new TimerWheel("Timer wheel", DEFAULT_TICK,
+                    DEFAULT_SLOTS);
+            defaultWheel.startPolling();
+        }
+        return defaultWheel;
+    }
+
+    /**
+     * Schedules a callback. It runs on the first tick at least the delay from
+     * now, so it may run up to one tick late, but never early.
+     *
+     * @param task callback to run
+     * @param delay time to wait before running it [ms]
+     * @return handle to cancel the callback with
+     */
+    public Timeout schedule(Runnable task, long delay) {
+        Timeout t = new Timeout(this, task);
+        long ticks = (delay * 1000L + tickLength - 1) / tickLength;
+        synchronized (this) {
+            t.deadline = Math.max(elapsedTicks(), currentTick) + Math.max(1, ticks);
+            Timeout head = slots[(int) (t.deadline & mask)];
+            t.prev = head.prev;
+            t.next = head;
+            head.prev.next = t;
+            head.prev = t;
+            pending++;
+        }
+        return t;
+    }
+
+    /**
+     * Returns the number of timeouts waiting to run.
+     *
+     * @return number of pending timeouts
+     */
+    public synchronized int numPending() {
+        return pending;
+    }
+
+    /**
+     * Returns the number of whole ticks since the wheel was created. Must be
+     * called with the wheel locked.
+     */
+    private long elapsedTicks() {
+        long now = Utility.getFPGATime();
+        elapsed += (now - lastReading) & 0xFFFFFFFFL;
+        lastReading = now;
+        return elapsed / tickLength;
+    }
+
+    private void unlink(Timeout t) {
+        t.prev.next = t.next;
+        t.next.prev = t.prev;
+        t.prev = t.next = null;
+        pending--;
+    }
+
+    protected void poll() {
+        Timeout expired = null;
+        synchronized (this) {
+            long target = elapsedTicks();
+            while (currentTick < target) {
+                currentTick++;
+                Timeout head = slots[(int) (currentTick & mask)];
+                Timeout t = head.next;
+                while (t != head) {
+                    Timeout next = t.next;
+                    if (t.deadline <= currentTick) {
+                        unlink(t);
+                        t.state = Timeout.EXPIRED;
+                        t.nextExpired = expired;
+                        expired = t;
+                    }
+                    t = next;
+                }
+            }
+        }
+
+        //run callbacks outside the lock, so that they may schedule or cancel
+        //other timeouts; the list is in reverse, so reverse it back first
+        Timeout ordered = null;
+        while (expired != null) {
+            Timeout next = expired.nextExpired;
+            expired.nextExpired = ordered;
+            ordered = expired;
+            expired = next;
+        }
+        while (ordered != null) {
+            Timeout next = ordered.nextExpired;
+            ordered.nextExpired = null;
+            try {
+                ordered.task.run();
+            } catch (RuntimeException e) {
+                logError("Timeout threw " + e);
+            }
+            ordered = next;
+        }
+    }
+}
@@ -3,10 +3,16 @@ package deploy;
 import actuator.GRTSolenoid;
 import controller.*;
 import controller.auto.*;
+import core.EventBus;
 import core.GRTConstants;
 import core.GRTMacroController;
+import core.GRTScheduler;
+import core.ListenerProfiler;
+import core.LoopMonitor;
 import core.SensorPoller;
+import core.ThreadRegistry;
 import edu.wpi.first.wpilibj.Compressor;
+import edu.wpi.first.wpilibj.DriverStationLCD;
 import edu.wpi.first.wpilibj.SpeedController;
 import edu.wpi.first.wpilibj.Talon;
 import edu.wpi.first.wpilibj.Victor;
@@ -41,6 +47,13 @@ public class MainRobot extends GRTRobot implements ConstantUpdateListener {
     private ExternalPickup ep;
     private Climber climber;
     private GRTGyro gyro;
+    private GRTJoystick leftPrimary, rightPrimary;
+    private GRTXboxJoystick secondary;
+    private GRTEncoder leftEnc, rightEnc;
+    private Potentiometer shooterPot;
+    private SensorPoller sp;
+    private ListenerProfiler profiler;
+    private LoopMonitor loopMonitor;
     private GRTMacroController macroController;
     private int autoMode = AUTO_MODE_3_FRISBEE; //Default autonomous mode
 
@@ -74,6 +87,16 @@ public class MainRobot extends GRTRobot implements ConstantUpdateListener {
         ep.stopRoller();
         climber.lower();
         belts.stop();
+
+        sp.logEventStatistics();
+        EventBus.getDefault().logStatistics();
+        if (profiler != null) {
+            profiler.report();
+        }
+        if (loopMonitor != null) {
+            loopMonitor.report();
+        }
+        ThreadRegistry.logLiveThreads();
     }
 
     /**
@@ -81,12 +104,16 @@ public class MainRobot extends GRTRobot implements ConstantUpdateListener {
      */
     private void omegaInit() {
 
-        SensorPoller sp = new SensorPoller(10);     //Thread that polls all sensors every 10ms.
-        SensorPoller encp = new SensorPoller(50);   //Thread that polls encoders less often, to make speed readings more consistent
+        GRTScheduler.setDefaultWorkerCount(
+                (int) GRTConstants.getValue("schedulerThreads", 2));
 
-        GRTJoystick leftPrimary = new GRTJoystick(1, "left primary joy");
-        GRTJoystick rightPrimary = new GRTJoystick(2, "right primary joy");
-        GRTXboxJoystick secondary = new GRTXboxJoystick(3, "xbox mech joy");
+        sp = new SensorPoller(10);     //Polls sensors on a 10ms tick; slow sensors every nth tick
+        sp.setIdleDivisor((int) GRTConstants.getValue("pollerIdleDivisor", 10));
+        sp.setActiveHold((int) GRTConstants.getValue("pollerActiveHold", 10));
+
+        leftPrimary = new GRTJoystick(1, "left primary joy");
+        rightPrimary = new GRTJoystick(2, "right primary joy");
+        secondary = new GRTXboxJoystick(3, "xbox mech joy");
         sp.addSensor(leftPrimary);
         sp.addSensor(rightPrimary);
         sp.addSensor(secondary);
@@ -95,7 +122,8 @@ public class MainRobot extends GRTRobot implements ConstantUpdateListener {
 
         //Battery Sensor
         GRTBatterySensor batterySensor = new GRTBatterySensor("battery");
-        sp.addSensor(batterySensor);
+        batterySensor.setIdleSlowdown(true);    //only ever listened to
+        sp.addSensor(batterySensor, 50);    //every 500ms
 
         //Shifter solenoids
         GRTSolenoid leftShifter = new GRTSolenoid(getPinID("leftShifter"));
@@ -110,14 +138,15 @@ public class MainRobot extends GRTRobot implements ConstantUpdateListener {
 
         double dtDistancePerPulse = GRTConstants.getValue("DTDistancePerPulse");
         //Mechanisms
-        GRTEncoder leftEnc = new GRTEncoder(getPinID("encoderLeftA"),
+        leftEnc = new GRTEncoder(getPinID("encoderLeftA"),
                 getPinID("encoderLeftB"),
                 dtDistancePerPulse, true, "leftEnc");
-        GRTEncoder rightEnc = new GRTEncoder(getPinID("encoderRightA"),
+        rightEnc = new GRTEncoder(getPinID("encoderRightA"),
                 getPinID("encoderRightB"),
                 dtDistancePerPulse, false, "rightEnc");
-        encp.addSensor(leftEnc);
-        encp.addSensor(rightEnc);
+        //encoders every 50ms, to make speed readings more consistent
+        sp.addSensor(leftEnc, 5);
+        sp.addSensor(rightEnc, 5);
 
         dt = new GRTDriveTrain(leftDT1, leftDT2, rightDT1, rightDT2,
                 leftShifter, rightShifter,
@@ -129,7 +158,7 @@ public class MainRobot extends GRTRobot implements ConstantUpdateListener {
                 GRTConstants.getValue("rightDT1Scale"),
                 GRTConstants.getValue("rightDT2Scale"));
 
-        DriveController dc = new DriveController(dt, leftPrimary, rightPrimary);
+        DriveController dc = new DriveController(dt, leftPrimary, rightPrimary, sp);
 
         addTeleopController(dc);
 
@@ -149,7 +178,7 @@ public class MainRobot extends GRTRobot implements ConstantUpdateListener {
                 getPinID("shooterEncoderB"),
                 GRTConstants.getValue("shooterEncoderPulseDistance"),
                 "shooterFlywheelEncoder");
-        Potentiometer shooterPot = new Potentiometer(
+        shooterPot = new Potentiometer(
                 getPinID("shooterPotentiometer"),
                 "shooter potentiometer");
         GRTSwitch lowerShooterLimit = new GRTSwitch(
@@ -159,7 +188,7 @@ public class MainRobot extends GRTRobot implements ConstantUpdateListener {
         shooter = new Shooter(shooter1, shooter2, shooterFeeder,
                 shooterRaiser, shooterEncoder, shooterPot, lowerShooterLimit);
 
-        encp.addSensor(shooterEncoder);
+        sp.addSensor(shooterEncoder, 5);
         sp.addSensor(shooterPot);
 
         //Belts
@@ -202,10 +231,56 @@ public class MainRobot extends GRTRobot implements ConstantUpdateListener {
         System.out.println("Start macro creation");
         defineAutoMacros();
 
+        configureSensorThresholds();
         GRTConstants.addListener(this);
 
         sp.startPolling();
-        encp.startPolling();
+
+        int reportPeriod = (int) GRTConstants.getValue("listenerReportPeriod", 0);
+        ListenerProfiler.setEnabled(reportPeriod > 0);
+        if (reportPeriod > 0) {
+            profiler = new ListenerProfiler(reportPeriod,
+                    (int) GRTConstants.getValue("listenersReported", 5));
+            profiler.startPolling();
+        }
+
+        int loopReportPeriod = (int) GRTConstants.getValue("loopReportPeriod", 0);
+        if (loopReportPeriod > 0) {
+            loopMonitor = new LoopMonitor(loopReportPeriod,
+                    DriverStationLCD.Line.kUser2);
+            loopMonitor.startPolling();
+        }
+    }
+
+    /**
+     * Sets how much continuous sensor data must change before listeners are
+     * notified, so that noise does not generate events on every poll. These
+     * only filter events: DriveController reads the primary sticks from
+     * sensor frames, which carry every change, so driving is unaffected.
+     */
+    private void configureSensorThresholds() {
+        double axisThreshold = GRTConstants.getValue("joystickAxisThreshold", 0);
+        double axisHysteresis = GRTConstants.getValue("joystickAxisHysteresis", 0);
+        leftPrimary.setChangeThreshold(GRTJoystick.KEY_Y, axisThreshold);
+        leftPrimary.setHysteresis(GRTJoystick.KEY_Y, axisHysteresis);
+        rightPrimary.setChangeThreshold(GRTJoystick.KEY_Y, axisThreshold);
+        rightPrimary.setHysteresis(GRTJoystick.KEY_Y, axisHysteresis);
+        secondary.setChangeThreshold(GRTXboxJoystick.KEY_LEFT_Y, axisThreshold);
+        secondary.setHysteresis(GRTXboxJoystick.KEY_LEFT_Y, axisHysteresis);
+        secondary.setChangeThreshold(GRTXboxJoystick.KEY_RIGHT_Y, axisThreshold);
+        secondary.setHysteresis(GRTXboxJoystick.KEY_RIGHT_Y, axisHysteresis);
+
+        double distanceThreshold = GRTConstants.getValue("encoderDistanceThreshold", 0);
+        double degreesThreshold = GRTConstants.getValue("encoderDegreesThreshold", 0);
+        leftEnc.setChangeThreshold(GRTEncoder.KEY_DISTANCE, distanceThreshold);
+        leftEnc.setChangeThreshold(GRTEncoder.KEY_DEGREES, degreesThreshold);
+        rightEnc.setChangeThreshold(GRTEncoder.KEY_DISTANCE, distanceThreshold);
+        rightEnc.setChangeThreshold(GRTEncoder.KEY_DEGREES, degreesThreshold);
+
+        shooterPot.setChangeThreshold(Potentiometer.KEY_VALUE,
+                GRTConstants.getValue("potentiometerThreshold", 0));
+        gyro.setChangeThreshold(GRTGyro.KEY_ANGLE,
+                GRTConstants.getValue("gyroThreshold", 0));
     }
 
     private int getPinID(String name) {
@@ -272,6 +347,7 @@ public class MainRobot extends GRTRobot implements ConstantUpdateListener {
     }
 
     public final void updateConstants() {
+        configureSensorThresholds();
         defineAutoMacros();
     }
 }
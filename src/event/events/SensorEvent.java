@@ -5,10 +5,17 @@ import core.Sensor;
 /**
  * Generic sensor event.
  * 
+ * Sensors reuse a single event instance per event type ("flyweight" events),
+ * updating it in place before each dispatch so that steady-state polling does
+ * not allocate. Listeners must therefore not hold on to an event after their
+ * callback returns; copy out whatever data is needed instead.
+ * 
  * @author anand, ajc
  */
 public class SensorEvent {
 
+    private static int allocations = 0;
+
     private Sensor source;
     private int id;
     private double data;
@@ -17,6 +24,22 @@ public class SensorEvent {
         this.source = source;
         this.id = id;
         this.data = data;
+        //events may be constructed on any thread
+        synchronized (SensorEvent.class) {
+            allocations++;
+        }
+    }
+
+    /**
+     * Reuses this event for a new datum. Only the sensor that owns this event
+     * should call this, immediately before dispatching it.
+     *
+     * @param id key of the data
+     * @param data new datum
+     */
+    public void update(int id, double data) {
+        this.id = id;
+        this.data = data;
     }
 
     public double getData() {
@@ -30,4 +53,15 @@ public class SensorEvent {
     public Sensor getSource() {
         return source;
     }
+
+    /**
+     * Returns the number of sensor events ever constructed, by any thread.
+     * The difference between two samples counts every event allocated in
+     * between, including by threads other than the sampling one.
+     *
+     * @return total number of SensorEvents allocated
+     */
+    public static synchronized int getAllocationCount() {
+        return allocations;
+    }
 }
@@ -0,0 +1,13 @@
+package event.listeners;
+
+import core.SensorFrame;
+
+/**
+ * Receives one frame of the latest sensor data per SensorPoller poll.
+ *
+ * @author ajc
+ */
+public interface SensorFrameListener {
+
+    public void frameUpdated(SensorFrame frame);
+}
@@ -0,0 +1,23 @@
+package event.listeners;
+
+import core.Sensor;
+
+/**
+ * Receives changes to specific keys of a sensor as primitives, without event
+ * objects. Subscribers are only called for the keys they subscribed to.
+ *
+ * @author ajc
+ */
+public interface SensorSubscriber {
+
+    /**
+     * Called when a subscribed datum changes.
+     *
+     * @param source sensor whose datum changed
+     * @param key key of the datum
+     * @param value new value of the datum
+     * @param timestamp FPGA time the value was sampled [us]
+     */
+    public void stateChanged(Sensor source, int key, double value,
+            long timestamp);
+}
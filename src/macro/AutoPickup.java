@@ -7,6 +7,7 @@ package macro;
 import core.GRTMacro;
 import mechanism.Belts;
 import mechanism.ExternalPickup;
+import mechanism.Subsystems;
 
 /**
  *
@@ -19,6 +20,7 @@ public class AutoPickup extends GRTMacro {
     
     public AutoPickup(ExternalPickup ep, Belts belts, int timeout) {
         super("start auto pickup", timeout);
+        requires(Subsystems.PICKUP | Subsystems.BELTS);
         this.ep = ep;
         this.belts = belts;
     }
@@ -5,8 +5,9 @@
 package macro;
 
 import core.GRTMacro;
-import edu.wpi.first.wpilibj.Timer;
+import core.TimerWheel;
 import mechanism.ExternalPickup;
+import mechanism.Subsystems;
 
 /**
  *
@@ -14,24 +15,36 @@ import mechanism.ExternalPickup;
  */
 public class LowerPickup extends GRTMacro {
 
+    private static final int LOWER_TIME = 400;
     private ExternalPickup ep;
+    private TimerWheel.Timeout timer;
     
     public LowerPickup(ExternalPickup ep) {
         super("Pickup lower macro", 500);
+        requires(Subsystems.PICKUP);
         this.ep = ep;
     }
     
     protected void initialize() {
+        ep.lower();
+        timer = TimerWheel.getDefault().schedule(stop, LOWER_TIME);
     }
 
     protected void perform() {
-        ep.lower();
-        Timer.delay(0.4);
-        ep.stopRaiser();
-        notifyFinished();
     }
 
     protected void die() {
+        //stop the raiser ourselves if the timer has not
+        if (timer.cancel()) {
+            ep.stopRaiser();
+        }
     }
-    
+
+    private final Runnable stop = new Runnable() {
+
+        public void run() {
+            ep.stopRaiser();
+            notifyFinished();
+        }
+    };
 }
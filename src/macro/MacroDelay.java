@@ -5,6 +5,7 @@
 package macro;
 
 import core.GRTMacro;
+import core.TimerWheel;
 
 /**
  *
@@ -13,6 +14,7 @@ import core.GRTMacro;
 public class MacroDelay extends GRTMacro {
  
     private int timeout = 500;
+    private TimerWheel.Timeout timer;
     
     /**
      * Delay execution for specified time
@@ -24,19 +26,20 @@ public class MacroDelay extends GRTMacro {
     }
 
     protected void perform() {
-        try {
-            Thread.sleep(timeout);
-        } catch (InterruptedException ex) {
-            ex.printStackTrace();
-        }
-        
-        notifyFinished();
     }
 
-    protected void die() {        
+    protected void die() {
+        timer.cancel();
     }
 
     protected void initialize() {
+        timer = TimerWheel.getDefault().schedule(finish, timeout);
     }
 
+    private final Runnable finish = new Runnable() {
+
+        public void run() {
+            notifyFinished();
+        }
+    };
 }
@@ -1,55 +1,75 @@
 package macro;
 
 import controller.DeadReckoner;
+import controller.TrapezoidalProfile;
 import core.GRTConstants;
 import core.GRTMacro;
+import core.PIDPool;
 import edu.wpi.first.wpilibj.PIDController;
 import edu.wpi.first.wpilibj.PIDOutput;
 import edu.wpi.first.wpilibj.PIDSource;
 import event.listeners.ConstantUpdateListener;
 import mechanism.GRTDriveTrain;
+import mechanism.Subsystems;
 import sensor.GRTEncoder;
 
 /**
  * Drives straight for a set distance.
  * 
+ * The drive follows a trapezoidal motion profile, built from the robot's
+ * measured maximum velocity and acceleration. Each step moves the distance
+ * PID's setpoint along the profile, and adds a feedforward term for the
+ * profile's velocity and acceleration to the PID output, so that the PID
+ * only corrects for tracking error.
+ * 
  * @author keshav
  */
 public class MacroDrive extends GRTMacro implements ConstantUpdateListener {
 
-    private static GRTDriveTrain dt;
-    private static double leftInitialDistance;
-    private static double rightInitialDistance;
-    private static PIDController DTController;
-    private static PIDController straightController;
-    private static GRTEncoder leftEncoder;
-    private static GRTEncoder rightEncoder;
-    private static double speed;
-    private static double leftSF = 1;
-    private static double rightSF = 1;
-    private static double DTP;
-    private static double DTI;
-    private static double DTD;
-    private static double CP;
-    private static double CI;
-    private static double CD;
-    private static double TOLERANCE;
-    private static double MAX_MOTOR_OUTPUT;   
+    private static final int POLL_TIME = 20;
+    private final GRTDriveTrain dt;
+    private double leftInitialDistance;
+    private double rightInitialDistance;
+    private PIDPool.Lease DTLease;
+    private PIDPool.Lease straightLease;
+    private PIDController DTController;
+    private PIDController straightController;
+    private final GRTEncoder leftEncoder;
+    private final GRTEncoder rightEncoder;
+    private volatile double speed;
+    private volatile double leftSF = 1;
+    private volatile double rightSF = 1;
+    private double DTP;
+    private double DTI;
+    private double DTD;
+    private double CP;
+    private double CI;
+    private double CD;
+    private double TOLERANCE;
+    private double MAX_MOTOR_OUTPUT;   
+    private double MAX_VELOCITY;
+    private double MAX_ACCELERATION;
+    private double KV;
+    private double KA;
     
     private double distance;
+    private volatile TrapezoidalProfile profile;
+    private TrapezoidalProfile activeProfile;
+    private long profileStart;
+    private volatile double feedforward;
     
     private boolean previouslyOnTarget = false;
         
-    private static PIDSource DTSource = new PIDSource() {
+    private PIDSource DTSource = new PIDSource() {
         public double pidGet() {
             System.out.println("Distance Traveled: "  + -(rightTraveledDistance() + leftTraveledDistance()) / 2);
             return -(rightTraveledDistance() + leftTraveledDistance()) / 2;
         }
     };
     
-    private static PIDOutput DTOutput = new PIDOutput() {
+    private PIDOutput DTOutput = new PIDOutput() {
         public void pidWrite(double output) {
-            speed = output;
+            speed = Math.max(-1, Math.min(1, output + feedforward));
             updateMotorSpeeds();
         }
     };
@@ -58,14 +78,14 @@ public class MacroDrive extends GRTMacro implements ConstantUpdateListener {
      * Use distance difference, rather than speed difference, to keep
      * robot straight
      */
-    private static PIDSource straightSource = new PIDSource() {
+    private PIDSource straightSource = new PIDSource() {
         public double pidGet() {
             
             return rightTraveledDistance() - leftTraveledDistance();
         }
     };
     
-    private static PIDOutput straightOutput = new PIDOutput() {
+    private PIDOutput straightOutput = new PIDOutput() {
         public void pidWrite(double output) {
             double modifier = Math.abs(output);
             System.out.println(output);
@@ -79,24 +99,18 @@ public class MacroDrive extends GRTMacro implements ConstantUpdateListener {
         }
     };
     
-    private static void updateMotorSpeeds() {
+    private void updateMotorSpeeds() {
         System.out.println("Speed: " + speed + "\tleftSF: " + leftSF + "\trightSF: " + rightSF);
         dt.setMotorSpeeds(speed * leftSF, speed * rightSF);
     }
     
-    private static double rightTraveledDistance() {
+    private double rightTraveledDistance() {
         return rightEncoder.getDistance() - rightInitialDistance;
     }
     
-    private static double leftTraveledDistance() {
+    private double leftTraveledDistance() {
         return leftEncoder.getDistance() - leftInitialDistance;
     }
-    
-    {
-        DTController = new PIDController(DTP, DTI, DTD, DTSource, DTOutput);
-        straightController = new PIDController(CP, CI, CD, straightSource, straightOutput);
-        straightController.setOutputRange(0, 1);
-    }
 
     /*
      * Creates a new Driving Macro
@@ -106,11 +120,13 @@ public class MacroDrive extends GRTMacro implements ConstantUpdateListener {
      * @param timeout time in ms
      */
     public MacroDrive(GRTDriveTrain dt, double distance, int timeout) {
-        super("Drive Macro", timeout);
-        MacroDrive.dt = dt;
+        super("Drive Macro", timeout, POLL_TIME);
+        requires(Subsystems.DRIVETRAIN);
+        setBlocking(true);
+        this.dt = dt;
         this.distance = distance;
-        MacroDrive.leftEncoder = dt.getLeftEncoder();
-        MacroDrive.rightEncoder = dt.getRightEncoder();
+        this.leftEncoder = dt.getLeftEncoder();
+        this.rightEncoder = dt.getRightEncoder();
                 
         updateConstants();
         GRTConstants.addListener(this);
@@ -119,22 +135,55 @@ public class MacroDrive extends GRTMacro implements ConstantUpdateListener {
     protected void initialize() {
         leftInitialDistance = leftEncoder.getDistance();
         rightInitialDistance = rightEncoder.getDistance();
+        leftSF = rightSF = 1;
+        speed = 0;
+        feedforward = 0;
+        previouslyOnTarget = false;
+        activeProfile = profile;
+
+        //the controllers are leased only while the macro runs
+        DTLease = PIDPool.acquire(Subsystems.DRIVETRAIN,
+                PIDPool.DEFAULT_PERIOD, DTSource, DTOutput);
+        straightLease = PIDPool.acquire(Subsystems.DRIVETRAIN,
+                PIDPool.DEFAULT_PERIOD, straightSource, straightOutput);
+        if (DTLease == null || straightLease == null) {
+            logError("No PID controllers to drive with");
+            releaseLeases();
+            notifyFinished();
+            return;
+        }
+        DTController = DTLease.getController();
+        straightController = straightLease.getController();
+
+        DTController.setPID(DTP, DTI, DTD);
+        DTController.setAbsoluteTolerance(TOLERANCE);
+        DTController.setOutputRange(-MAX_MOTOR_OUTPUT, MAX_MOTOR_OUTPUT);
+        straightController.setPID(CP, CI, CD);
+        straightController.setOutputRange(0, 1);
 
-        DTController.setSetpoint(distance);
+        DTController.setSetpoint(0);
         straightController.setSetpoint(0);
 
+        profileStart = System.currentTimeMillis();
         DTController.enable();
         straightController.enable();
         
-        leftSF = rightSF = 1;
         System.out.println("MACRODRIVE is initialized");
     }
 
     protected void perform() {
+        double t = (System.currentTimeMillis() - profileStart) / 1000.0;
+        DTController.setSetpoint(activeProfile.getPosition(t));
+        feedforward = KV * activeProfile.getVelocity(t)
+                + KA * activeProfile.getAcceleration(t);
         
         System.out.println("DTerror: " + DTController.getError());
         
-        if (DTController.onTarget()) {
+        //tracking within tolerance mid-profile is not arriving
+        boolean onTarget = activeProfile.isFinished(t)
+                && DTController.onTarget();
+        setOnTarget(onTarget);
+        if (onTarget) {
             System.out.println("On target!");
             if (previouslyOnTarget)
                 notifyFinished();
@@ -146,16 +195,30 @@ public class MacroDrive extends GRTMacro implements ConstantUpdateListener {
     }
 
     protected void die() {
+        feedforward = 0;
+        releaseLeases();
         dt.setMotorSpeeds(0, 0);
-        DTController.disable();
-        straightController.disable();
         DeadReckoner.notifyDrive(getDistanceTraveled());
     }
+
+    private void releaseLeases() {
+        if (DTLease != null) {
+            DTLease.release();
+        }
+        if (straightLease != null) {
+            straightLease.release();
+        }
+        DTLease = straightLease = null;
+    }
     
     public double getDistanceTraveled() {
         return (leftTraveledDistance() + rightTraveledDistance()) / 2;
     }
 
+    /**
+     * Reads the gains and profile limits, and rebuilds the profile. They
+     * apply from the next time the macro starts.
+     */
     public final void updateConstants() {
         DTP = GRTConstants.getValue("DMP");
         DTI = GRTConstants.getValue("DMI");
@@ -165,10 +228,12 @@ public class MacroDrive extends GRTMacro implements ConstantUpdateListener {
         CD = GRTConstants.getValue("DMCD");
         TOLERANCE = GRTConstants.getValue("DMTol");
         MAX_MOTOR_OUTPUT = GRTConstants.getValue("DMMax");
-        
-        DTController.setPID(DTP, DTI, DTD);
-        straightController.setPID(CP, CI, CD);
-        DTController.setAbsoluteTolerance(TOLERANCE);
-        DTController.setOutputRange(-MAX_MOTOR_OUTPUT, MAX_MOTOR_OUTPUT);
+        MAX_VELOCITY = GRTConstants.getValue("DMMaxVelocity", 2.0);
+        MAX_ACCELERATION = GRTConstants.getValue("DMMaxAcceleration", 3.0);
+        KV = GRTConstants.getValue("DMkV", 0.3);
+        KA = GRTConstants.getValue("DMkA", 0.05);
+
+        profile = new TrapezoidalProfile(distance, MAX_VELOCITY,
+                MAX_ACCELERATION);
     }
 }
@@ -3,11 +3,13 @@ package macro;
 import controller.DeadReckoner;
 import core.GRTConstants;
 import core.GRTMacro;
+import core.PIDPool;
 import edu.wpi.first.wpilibj.PIDController;
 import edu.wpi.first.wpilibj.PIDOutput;
 import edu.wpi.first.wpilibj.PIDSource;
 import event.listeners.ConstantUpdateListener;
 import mechanism.GRTDriveTrain;
+import mechanism.Subsystems;
 import sensor.GRTGyro;
 
 /**
@@ -20,29 +22,27 @@ public class MacroTurn extends GRTMacro implements ConstantUpdateListener{
     private double targetAngle;
     private double startAngle;
     private final double turnAngle;
-    private static GRTGyro gyro;
-    private static GRTDriveTrain dt;
-    private static PIDController controller;
+    private static final double PID_PERIOD = 0.01;
+    private final GRTGyro gyro;
+    private final GRTDriveTrain dt;
+    private PIDPool.Lease lease;
+    private PIDController controller;
     private double P;
     private double I;
     private double D;
 
     private boolean previouslyOnTarget = false;
     
-    private static PIDSource pidSource = new PIDSource() {
+    private PIDSource pidSource = new PIDSource() {
         public double pidGet() {
             return gyro.getAngle();
         }
     };
-    private static PIDOutput pidOutput = new PIDOutput() {
+    private PIDOutput pidOutput = new PIDOutput() {
         public void pidWrite(double output) {
             dt.setMotorSpeeds(output, -output);
         }
     };
-    
-    {
-        controller = new PIDController(0, 0, 0, pidSource, pidOutput, 0.01);
-    }
     /**
      * Creates a new turning macro, that turns a set number of degrees.
      * 
@@ -52,10 +52,12 @@ public class MacroTurn extends GRTMacro implements ConstantUpdateListener{
      */
     public MacroTurn(GRTDriveTrain dt, GRTGyro gyro, double turnAngle, int timeout) {
         super("Turn Macro", timeout, 50);
+        requires(Subsystems.DRIVETRAIN);
+        setBlocking(true);
         
-        MacroTurn.dt = dt;
+        this.dt = dt;
         this.turnAngle = turnAngle;
-        MacroTurn.gyro = gyro;
+        this.gyro = gyro;
                
         updateConstants();
         GRTConstants.addListener(this);
@@ -63,7 +65,9 @@ public class MacroTurn extends GRTMacro implements ConstantUpdateListener{
 
     protected void perform() {
         System.out.println("Turn macro current angle: " + (gyro.getAngle() - startAngle));
-        if (controller.onTarget()) {
+        boolean onTarget = controller.onTarget();
+        setOnTarget(onTarget);
+        if (onTarget) {
             System.out.println("On target");
             if (previouslyOnTarget) {
                 System.out.println("Done turning");
@@ -76,7 +80,10 @@ public class MacroTurn extends GRTMacro implements ConstantUpdateListener{
 
     protected void die() {
         System.out.println("Killing turn macro");
-        controller.disable();
+        if (lease != null) {
+            lease.release();
+            lease = null;
+        }
         dt.shiftUp();
         DeadReckoner.notifyTurn(getAngleTurned());  //Notify of our last heading
     }
@@ -85,19 +92,31 @@ public class MacroTurn extends GRTMacro implements ConstantUpdateListener{
         dt.shiftDown();
         startAngle = gyro.getAngle();
         targetAngle = startAngle + turnAngle;
+        previouslyOnTarget = false;
+        //the controller is leased only while the macro runs
+        lease = PIDPool.acquire(Subsystems.DRIVETRAIN, PID_PERIOD,
+                pidSource, pidOutput);
+        if (lease == null) {
+            logError("No PID controller to turn with");
+            notifyFinished();
+            return;
+        }
+        controller = lease.getController();
+        controller.setPID(P, I, D);
         controller.setOutputRange(-1, 1);
         controller.setAbsoluteTolerance(GRTConstants.getValue("TMTol"));
         controller.setSetpoint(targetAngle);
         controller.enable();
     }
 
+    /**
+     * Reads the gains. They apply from the next time the macro starts.
+     */
     public final void updateConstants() {
         
         P = GRTConstants.getValue("TMP");
         I = GRTConstants.getValue("TMI");
         D = GRTConstants.getValue("TMD");
-        
-        controller.setPID(P, I, D);
     }
     
     public double getAngleTurned() {
@@ -5,8 +5,9 @@
 package macro;
 
 import core.GRTMacro;
-import edu.wpi.first.wpilibj.Timer;
 import mechanism.Shooter;
+import mechanism.ShotSequencer;
+import mechanism.Subsystems;
 
 /**
  *
@@ -14,37 +15,38 @@ import mechanism.Shooter;
  */
 public class Shoot extends GRTMacro {
  
-    private final Shooter shooter;
+    //Longest expected time per shot, to bound the macro's timeout [ms]
+    private static final int SHOT_ALLOWANCE = 650;
+    private final ShotSequencer sequencer;
     private final int num;
     
     /**
-     * Operate Luna for some cycles
+     * Operate Luna for some cycles, each as soon as the shooter is ready
      * @param shooter Shooter object
-     * @param timeout Timeout (in ms)
+     * @param timeout Timeout (in ms), on top of the time allowed for the shots
+     * themselves
      * @param num times to operate luna
      */
     public Shoot(Shooter shooter, int timeout, int num) {
-        super("Shoot Macro", timeout);
-        this.shooter = shooter;
+        super("Shoot Macro", timeout + num * SHOT_ALLOWANCE, 20);
+        //the belts feed the shooter, and the robot must hold its aim
+        requires(Subsystems.SHOOTER | Subsystems.BELTS | Subsystems.DRIVETRAIN);
+        this.sequencer = shooter.getSequencer();
         this.num = num;
     }
 
     protected void perform() {
-        for (int i = 0; i < num; i++) {
-            System.out.println("Shooting a frisbee!");
-            shooter.shoot();
-            Timer.delay(0.15);
-            shooter.unShoot();
-            if (i < num - 1)
-                Timer.delay(0.50);
+        if (sequencer.isIdle()) {
+            notifyFinished();
         }
-        notifyFinished();
     }
 
-    protected void die() {        
+    protected void die() {
+        sequencer.stop();
     }
 
     protected void initialize() {
+        sequencer.fire(num);
     }
 
 }
@@ -6,6 +6,7 @@ package macro;
 
 import core.GRTMacro;
 import mechanism.Shooter;
+import mechanism.Subsystems;
 
 /**
  *
@@ -26,6 +27,7 @@ public class ShooterSet extends GRTMacro {
      */
     public ShooterSet(double angle, double speed, Shooter shooter, int timeout) {
         super("Shooter Angle Macro", timeout);
+        requires(Subsystems.SHOOTER);
         this.shooter = shooter;
         this.angle = angle;
         this.speed = speed;
@@ -17,6 +17,7 @@ public class Belts extends GRTLoggedProcess{
     
     public Belts(SpeedController beltsMotor) {
         super("Belts mech", 500);
+        setPriorityClass(CONTROL);
         this.beltsMotor = beltsMotor;
     }
     
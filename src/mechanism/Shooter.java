@@ -34,6 +34,7 @@ public class Shooter extends GRTLoggedProcess implements PotentiometerListener,
     private PIDController raiserController;
     private PIDController flywheelController;
     private boolean lowerSwitchPressed = false;
+    private final ShotSequencer sequencer;
     /**
      * PID Constants for the raiser. RAISER_TOLERANCE is the absolute error
      * allowed in the raiser angle (in degrees).
@@ -50,6 +51,11 @@ public class Shooter extends GRTLoggedProcess implements PotentiometerListener,
     private double FLYWHEEL_I;
     private double FLYWHEEL_D;
     private double FLYWHEEL_TOLERANCE;
+    /**
+     * How often the flywheel encoder must be polled while the flywheel PID
+     * runs [ms]. Matches the PIDController's default period.
+     */
+    private static final int FLYWHEEL_POLL_PERIOD = 50;
     /**
      * The voltage output by the pot at the lowest angle.
      */
@@ -85,8 +91,19 @@ public class Shooter extends GRTLoggedProcess implements PotentiometerListener,
         updateConstants();
         lowerLimit.addListener(this);
         raiserPot.addListener(this);
+        raiserPot.addListener(angleDisplay, true);
         
         GRTConstants.addListener(this);
+        sequencer = new ShotSequencer(this);
+    }
+
+    /**
+     * Returns the sequencer that fires this shooter as fast as it is ready.
+     *
+     * @return shot sequencer
+     */
+    public ShotSequencer getSequencer() {
+        return sequencer;
     }
 
     /**
@@ -96,6 +113,7 @@ public class Shooter extends GRTLoggedProcess implements PotentiometerListener,
      */
     public void setFlywheelOutput(double speed) {
         flywheelController.disable();
+        flywheelEncoder.requestPollPeriod(0);
         shooterMotor1.set(speed);
         shooterMotor2.set(speed);
     }
@@ -124,6 +142,8 @@ public class Shooter extends GRTLoggedProcess implements PotentiometerListener,
             setFlywheelOutput(0);
         } else {
             System.out.println("PID settting flywheel speed to " + speed);
+            //the PID reads the encoder's rate directly, not through events
+            flywheelEncoder.requestPollPeriod(FLYWHEEL_POLL_PERIOD);
             flywheelController.setSetpoint(speed);
             flywheelController.enable();
         }
@@ -154,12 +174,25 @@ public class Shooter extends GRTLoggedProcess implements PotentiometerListener,
         }
     }
 
+    /**
+     * Returns whether the flywheel PID is running and at its setpoint. A
+     * disabled controller reports no useful error, so the flywheel is never
+     * spun up while it is driven open loop or stopped.
+     *
+     * @return true if the flywheel is at speed
+     */
     public boolean isSpunUp() {
-        return flywheelController.onTarget();
+        return flywheelController.isEnable() && flywheelController.onTarget();
     }
 
+    /**
+     * Returns whether the shooter is at its angle setpoint. While the angle is
+     * adjusted by hand, the shooter is wherever the operator aims it.
+     *
+     * @return true if at the desired angle
+     */
     public boolean isCorrectAngle() {
-        return raiserController.onTarget();
+        return !raiserController.isEnable() || raiserController.onTarget();
     }
 
     /**
@@ -208,15 +241,18 @@ public class Shooter extends GRTLoggedProcess implements PotentiometerListener,
     }
 
     /**
-     * Extends luna.
+     * Extends luna, unless the flywheel is not spun up.
+     *
+     * @return true if a frisbee was fed, false if the shot was refused
      */
-    public void shoot() {
-        if (flywheelController.getSetpoint() == 0) {
+    public boolean shoot() {
+        if (!isSpunUp()) {
             logInfo("Harsha done fucked up.");
-        } else {
-            logInfo("Here it comes! Firing frisbee.");
-            feeder.set(true);
+            return false;
         }
+        logInfo("Here it comes! Firing frisbee.");
+        feeder.set(true);
+        return true;
     }
 
     /**
@@ -227,11 +263,16 @@ public class Shooter extends GRTLoggedProcess implements PotentiometerListener,
         feeder.set(false);
     }
     DriverStationLCD lcd = DriverStationLCD.getInstance();
+    //Updating the LCD is slow, so it is done off the polling thread.
+    private PotentiometerListener angleDisplay = new PotentiometerListener() {
+        public void valueChanged(PotentiometerEvent e) {
+            lcd.println(DriverStationLCD.Line.kUser1, 1, Double.toString(getShooterAngle()) + " ");
+            lcd.updateLCD();
+        }
+    };
 
     public void valueChanged(PotentiometerEvent e) {
 //        System.out.println(getShooterAngle());
-        lcd.println(DriverStationLCD.Line.kUser1, 1, Double.toString(getShooterAngle()) + " ");
-        lcd.updateLCD();
         double currentSpeed = -raiser.get();
         if ((getShooterAngle() <= MIN_ANGLE && currentSpeed < 0)
                 || (getShooterAngle() >= MAX_ANGLE && currentSpeed > 0)) {
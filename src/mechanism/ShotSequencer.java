@@ -0,0 +1,205 @@
+package mechanism;
+
+import core.GRTConstants;
+import core.GRTLoggedProcess;
+import event.listeners.ConstantUpdateListener;
+
+/**
+ * Fires frisbees from a shooter as fast as the shooter is ready for them.
+ *
+ * Rather than firing on a fixed schedule, the sequencer feeds the next
+ * frisbee once the flywheel is spun up and the shooter is at its angle, and
+ * both have held for a short window. The feeder is retracted as soon as its
+ * stroke completes, and given time to return before the next shot. Each
+ * burst logs the rate of fire it achieved.
+ *
+ * The sequencer only polls while it has shots to fire.
+ *
+ * @author Calvin
+ */
+public class ShotSequencer extends GRTLoggedProcess implements ConstantUpdateListener {
+
+    private static final int POLL_TIME = 10;
+    private static final int IDLE = 0;
+    private static final int WAITING = 1;
+    private static final int FEEDING = 2;
+    private static final int RETRACTING = 3;
+    private final Shooter shooter;
+    private int state = IDLE;
+    private int shotsPending = 0;
+    private boolean continuous = false;
+    private boolean polling = false;
+    private long readySince = -1;
+    private long stateSince;
+    //Time for which the shooter must be ready before firing [ms]
+    private long readyWindow;
+    //Time for the feeder to push a frisbee into the flywheel [ms]
+    private long feedTime;
+    //Time for the feeder to return after retracting [ms]
+    private long retractTime;
+    private int burstShots = 0;
+    private long burstStart;
+    private int totalShots = 0;
+
+    /**
+     * Creates a sequencer for a shooter.
+     *
+     * @param shooter shooter to fire
+     */
+    public ShotSequencer(Shooter shooter) {
+        super("Shot sequencer", POLL_TIME);
+        setPriorityClass(CONTROL);
+        this.shooter = shooter;
+        updateConstants();
+        GRTConstants.addListener(this);
+    }
+
+    /**
+     * Queues shots, to be fired as soon as the shooter is ready for each.
+     *
+     * @param shots number of frisbees to fire
+     */
+    public synchronized void fire(int shots) {
+        if (shots <= 0) {
+            return;
+        }
+        shotsPending += shots;
+        begin();
+    }
+
+    /**
+     * Fires frisbees as soon as the shooter is ready for each, until stopped.
+     */
+    public synchronized void fireContinuously() {
+        continuous = true;
+        begin();
+    }
+
+    /**
+     * Stops firing. Queued shots are dropped and the feeder is retracted.
+     */
+    public synchronized void stop() {
+        shotsPending = 0;
+        continuous = false;
+        if (state == FEEDING) {
+            shooter.unShoot();
+            enter(RETRACTING, System.currentTimeMillis());
+        } else if (state == WAITING) {
+            finishBurst();
+        }
+    }
+
+    /**
+     * Returns whether all queued shots have been fired and the feeder has
+     * returned.
+     *
+     * @return true if idle
+     */
+    public synchronized boolean isIdle() {
+        return state == IDLE;
+    }
+
+    /**
+     * Returns the number of shots fired since the robot started.
+     *
+     * @return number of shots fired
+     */
+    public synchronized int getShotsFired() {
+        return totalShots;
+    }
+
+    private void begin() {
+        if (state == IDLE) {
+            enter(WAITING, System.currentTimeMillis());
+            readySince = -1;
+            burstShots = 0;
+        }
+        if (!polling) {
+            polling = true;
+            startPolling();
+        }
+    }
+
+    private void enter(int newState, long now) {
+        state = newState;
+        stateSince = now;
+    }
+
+    private boolean hasShotsLeft() {
+        return continuous || shotsPending > 0;
+    }
+
+    protected synchronized void poll() {
+        long now = System.currentTimeMillis();
+        switch (state) {
+            case WAITING:
+                if (!hasShotsLeft()) {
+                    finishBurst();
+                    break;
+                }
+                if (!shooter.isSpunUp() || !shooter.isCorrectAngle()) {
+                    readySince = -1;
+                    break;
+                }
+                if (readySince < 0) {
+                    readySince = now;
+                }
+                if (now - readySince >= readyWindow) {
+                    if (!shooter.shoot()) {
+                        //the flywheel dropped out since it was last checked
+                        readySince = -1;
+                        break;
+                    }
+                    if (burstShots == 0) {
+                        burstStart = now;
+                    }
+                    if (shotsPending > 0) {
+                        shotsPending--;
+                    }
+                    burstShots++;
+                    totalShots++;
+                    enter(FEEDING, now);
+                }
+                break;
+            case FEEDING:
+                if (now - stateSince >= feedTime) {
+                    shooter.unShoot();
+                    enter(RETRACTING, now);
+                }
+                break;
+            case RETRACTING:
+                if (now - stateSince >= retractTime) {
+                    if (hasShotsLeft()) {
+                        //the shot dips the flywheel, so wait for it again
+                        readySince = -1;
+                        enter(WAITING, now);
+                    } else {
+                        finishBurst();
+                    }
+                }
+                break;
+        }
+
+        if (state == IDLE) {
+            polling = false;
+            halt();
+        }
+    }
+
+    private void finishBurst() {
+        long now = System.currentTimeMillis();
+        enter(IDLE, now);
+        if (burstShots > 0) {
+            long elapsed = Math.max(1, now - burstStart);
+            logInfo("Fired " + burstShots + " shots in " + elapsed + " ms, "
+                    + (burstShots * 10000 / elapsed) / 10.0 + " shots/s");
+        }
+        burstShots = 0;
+    }
+
+    public final void updateConstants() {
+        readyWindow = (long) GRTConstants.getValue("shotReadyWindow", 40);
+        feedTime = (long) GRTConstants.getValue("shotFeedTime", 150);
+        retractTime = (long) GRTConstants.getValue("shotRetractTime", 500);
+    }
+}
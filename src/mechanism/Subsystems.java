@@ -0,0 +1,19 @@
+package mechanism;
+
+/**
+ * Subsystems that macros may require. Each is one bit, so a macro requiring
+ * several subsystems ORs them together.
+ *
+ * @author keshav
+ */
+public final class Subsystems {
+
+    public static final int DRIVETRAIN = 1;
+    public static final int SHOOTER = 2;
+    public static final int PICKUP = 4;
+    public static final int BELTS = 8;
+    public static final int CLIMBER = 16;
+
+    private Subsystems() {
+    }
+}
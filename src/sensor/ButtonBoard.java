@@ -1,5 +1,6 @@
 package sensor;
 
+import core.ListenerList;
 import core.Sensor;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.DriverStationEnhancedIO;
@@ -8,8 +9,6 @@ import event.events.ButtonEvent;
 import event.events.PotentiometerEvent;
 import event.listeners.ButtonListener;
 import event.listeners.PotentiometerListener;
-import java.util.Enumeration;
-import java.util.Vector;
 
 /**
  * Button board on the 2013 driver station.
@@ -31,8 +30,14 @@ public class ButtonBoard extends Sensor {
     private static final int[] POT_PINS = {1, 3};
     private static final int[] LED_PINS = {8, 10, 12};
     
-    private Vector buttonListeners = new Vector();
-    private Vector potentiometerListeners = new Vector();
+    private final ListenerList buttonListeners = new ListenerList(this);
+    private final ListenerList potentiometerListeners = new ListenerList(this);
+    private final ButtonEvent buttonEvent = new ButtonEvent(this, 0, false);
+    private final ButtonEvent asyncButtonEvent = new ButtonEvent(this, 0, false);
+    private final PotentiometerEvent potentiometerEvent =
+            new PotentiometerEvent(this, 0, 0);
+    private final PotentiometerEvent asyncPotentiometerEvent =
+            new PotentiometerEvent(this, 0, 0);
     
     private static final DriverStationEnhancedIO ioBoard =
             DriverStation.getInstance().getEnhancedIO();
@@ -60,22 +65,45 @@ public class ButtonBoard extends Sensor {
         return buttonBoard;
     }
 
-    protected void notifyListeners(int id, double newDatum) {
+    protected void notifyListeners(int id, double newDatum, boolean async) {
+        Object[] buttons = buttonListeners.getListeners(async);
+        Object[] pots = potentiometerListeners.getListeners(async);
         if (id < 6)
             logInfo("ButtonBoard id: " + id + " datum " + newDatum);
         
         if (id < 6) { //button event
-            ButtonEvent e = new ButtonEvent(this, id, newDatum == TRUE);
+            ButtonEvent e;
+            if (reusesEvents()) {
+                e = async ? asyncButtonEvent : buttonEvent;
+                e.update(id, newDatum);
+            } else {
+                e = new ButtonEvent(this, id, newDatum == TRUE);
+            }
             if (newDatum == TRUE)
-                for (Enumeration en = buttonListeners.elements(); en.hasMoreElements();)
-                    ((ButtonListener) en.nextElement()).buttonPressed(e);
+                for (int i = 0; i < buttons.length; i++) {
+                    long start = buttonListeners.startCall();
+                    ((ButtonListener) buttons[i]).buttonPressed(e);
+                    buttonListeners.endCall(buttons, i, start);
+                }
             else
-                for (Enumeration en = buttonListeners.elements(); en.hasMoreElements();)
-                    ((ButtonListener) en.nextElement()).buttonReleased(e);
+                for (int i = 0; i < buttons.length; i++) {
+                    long start = buttonListeners.startCall();
+                    ((ButtonListener) buttons[i]).buttonReleased(e);
+                    buttonListeners.endCall(buttons, i, start);
+                }
         } else { //potentiometer event
-            PotentiometerEvent e = new PotentiometerEvent(this, id, newDatum);
-            for (Enumeration en = potentiometerListeners.elements(); en.hasMoreElements();)
-                ((PotentiometerListener) en.nextElement()).valueChanged(e);
+            PotentiometerEvent e;
+            if (reusesEvents()) {
+                e = async ? asyncPotentiometerEvent : potentiometerEvent;
+                e.update(id, newDatum);
+            } else {
+                e = new PotentiometerEvent(this, id, newDatum);
+            }
+            for (int i = 0; i < pots.length; i++) {
+                long start = potentiometerListeners.startCall();
+                ((PotentiometerListener) pots[i]).valueChanged(e);
+                potentiometerListeners.endCall(pots, i, start);
+            }
         }
     }
     
@@ -148,7 +176,17 @@ public class ButtonBoard extends Sensor {
      * @param l listener to add
      */
     public void addButtonListener(ButtonListener l) {
-        buttonListeners.addElement(l);
+        buttonListeners.add(l);
+    }
+
+    /**
+     * Adds a button listener.
+     * @param l listener to add
+     * @param async true to be called from the event bus instead of the
+     * polling thread
+     */
+    public void addButtonListener(ButtonListener l, boolean async) {
+        buttonListeners.add(l, async);
     }
     
     /**
@@ -156,7 +194,7 @@ public class ButtonBoard extends Sensor {
      * @param l listener to remove
      */
     public void removeButtonListener(ButtonListener l) {
-        buttonListeners.removeElement(l);
+        buttonListeners.remove(l);
     }
     
     /**
@@ -164,7 +202,18 @@ public class ButtonBoard extends Sensor {
      * @param l listener to add
      */
     public void addPotentiometerListener(PotentiometerListener l) {
-        potentiometerListeners.addElement(l);
+        potentiometerListeners.add(l);
+    }
+
+    /**
+     * Adds a potentiometer listener
+     * @param l listener to add
+     * @param async true to be called from the event bus instead of the
+     * polling thread
+     */
+    public void addPotentiometerListener(PotentiometerListener l,
+            boolean async) {
+        potentiometerListeners.add(l, async);
     }
     
     /**
@@ -172,6 +221,6 @@ public class ButtonBoard extends Sensor {
      * @param l listener to add
      */
     public void removePotentiometerListener(PotentiometerListener l) {
-        potentiometerListeners.removeElement(l);
+        potentiometerListeners.remove(l);
     }
 }
@@ -1,11 +1,10 @@
 package sensor;
 
+import core.ListenerList;
 import core.Sensor;
 import edu.wpi.first.wpilibj.ADXL345_I2C;
 import event.events.ADXL345Event;
 import event.listeners.ADXL345Listener;
-import java.util.Enumeration;
-import java.util.Vector;
 
 /**
  * Wrapper for the ADXL345 accelerometer. Measures X, Y, and Z accelerations in
@@ -20,7 +19,9 @@ public class GRTADXL345 extends Sensor {
     private static final int Y_AXIS = 1;
     private static final int Z_AXIS = 2;
     private static final int NUM_DATA = 3;
-    private Vector listeners;
+    private final ListenerList listeners = new ListenerList(this);
+    private final ADXL345Event event = new ADXL345Event(this, 0, 0);
+    private final ADXL345Event asyncEvent = new ADXL345Event(this, 0, 0);
 
     /**
      * Instantiates a new ADXL345.
@@ -34,7 +35,6 @@ public class GRTADXL345 extends Sensor {
         accelerometer = new ADXL345_I2C(moduleNum,
                 ADXL345_I2C.DataFormat_Range.k2G);
 
-        listeners = new Vector();
     }
 
     protected void poll() {
@@ -44,30 +44,50 @@ public class GRTADXL345 extends Sensor {
     }
 
     public void addADXL345Listener(ADXL345Listener l) {
-        listeners.addElement(l);
+        listeners.add(l);
+    }
+
+    public void addADXL345Listener(ADXL345Listener l, boolean async) {
+        listeners.add(l, async);
     }
 
     public void removeADXL345Listener(ADXL345Listener l) {
-        listeners.removeElement(l);
+        listeners.remove(l);
     }
 
-    protected void notifyListeners(int id, double newDatum) {
-        ADXL345Event e = new ADXL345Event(this, id, newDatum);
+    protected void notifyListeners(int id, double newDatum, boolean async) {
+        Object[] snapshot = listeners.getListeners(async);
+        ADXL345Event e;
+        if (reusesEvents()) {
+            e = async ? asyncEvent : event;
+            e.update(id, newDatum);
+        } else {
+            e = new ADXL345Event(this, id, newDatum);
+        }
 
         switch (id) {
             case X_AXIS: {
-                for (Enumeration en = listeners.elements(); en.hasMoreElements();)
-                    ((ADXL345Listener) en.nextElement()).XAccelChange(e);
+                for (int i = 0; i < snapshot.length; i++) {
+                    long start = listeners.startCall();
+                    ((ADXL345Listener) snapshot[i]).XAccelChange(e);
+                    listeners.endCall(snapshot, i, start);
+                }
             }
 
             case Y_AXIS: {
-                for (Enumeration en = listeners.elements(); en.hasMoreElements();)
-                    ((ADXL345Listener) en.nextElement()).YAccelChange(e);
+                for (int i = 0; i < snapshot.length; i++) {
+                    long start = listeners.startCall();
+                    ((ADXL345Listener) snapshot[i]).YAccelChange(e);
+                    listeners.endCall(snapshot, i, start);
+                }
             }
 
             case Z_AXIS: {
-                for (Enumeration en = listeners.elements(); en.hasMoreElements();)
-                    ((ADXL345Listener) en.nextElement()).ZAccelChange(e);
+                for (int i = 0; i < snapshot.length; i++) {
+                    long start = listeners.startCall();
+                    ((ADXL345Listener) snapshot[i]).ZAccelChange(e);
+                    listeners.endCall(snapshot, i, start);
+                }
             }
         }
     }
@@ -1,11 +1,10 @@
 package sensor;
 
+import core.ListenerList;
 import core.Sensor;
 import edu.wpi.first.wpilibj.DriverStation;
 import event.events.BatteryVoltageEvent;
 import event.listeners.BatteryVoltageListener;
-import java.util.Enumeration;
-import java.util.Vector;
 
 /**
  * A battery sensor that retrieves main battery voltage from the analog sidecar.
@@ -16,7 +15,9 @@ public class GRTBatterySensor extends Sensor {
 
     public static final int KEY_BATTERY_VOLTAGE = 0;
     private final DriverStation ds;
-    private final Vector listeners;
+    private final ListenerList listeners = new ListenerList(this);
+    private final BatteryVoltageEvent event = new BatteryVoltageEvent(this, 0);
+    private final BatteryVoltageEvent asyncEvent = new BatteryVoltageEvent(this, 0);
 
     /**
      * Instantiates a new battery sensor.
@@ -26,7 +27,6 @@ public class GRTBatterySensor extends Sensor {
     public GRTBatterySensor(String name) {
         super(name, 1);
         ds = DriverStation.getInstance();
-        listeners = new Vector();
     }
 
     protected void poll() {
@@ -42,19 +42,33 @@ public class GRTBatterySensor extends Sensor {
         return getState(KEY_BATTERY_VOLTAGE);
     }
 
-    protected void notifyListeners(int id,  double newDatum) {
+    protected void notifyListeners(int id, double newDatum, boolean async) {
+        Object[] snapshot = listeners.getListeners(async);
 
-        BatteryVoltageEvent e = new BatteryVoltageEvent(this, newDatum);
+        BatteryVoltageEvent e;
+        if (reusesEvents()) {
+            e = async ? asyncEvent : event;
+            e.update(KEY_BATTERY_VOLTAGE, newDatum);
+        } else {
+            e = new BatteryVoltageEvent(this, newDatum);
+        }
 
-        for (Enumeration en = listeners.elements(); en.hasMoreElements();)
-            ((BatteryVoltageListener) en.nextElement()).batteryVoltageChanged(e);
+        for (int i = 0; i < snapshot.length; i++) {
+            long start = listeners.startCall();
+            ((BatteryVoltageListener) snapshot[i]).batteryVoltageChanged(e);
+            listeners.endCall(snapshot, i, start);
+        }
     }
 
     public void addBatteryVoltageListener(BatteryVoltageListener l) {
-        listeners.addElement(l);
+        listeners.add(l);
+    }
+
+    public void addBatteryVoltageListener(BatteryVoltageListener l, boolean async) {
+        listeners.add(l, async);
     }
 
     public void removeBatteryVoltageListener(BatteryVoltageListener l) {
-        listeners.removeElement(l);
+        listeners.remove(l);
     }
 }
@@ -1,12 +1,11 @@
 package sensor;
 
+import core.ListenerList;
 import core.Sensor;
 import edu.wpi.first.wpilibj.CounterBase;
 import edu.wpi.first.wpilibj.Encoder;
 import event.events.EncoderEvent;
 import event.listeners.EncoderListener;
-import java.util.Enumeration;
-import java.util.Vector;
 
 /**
  * Wrapper class for a quadrature encoder.
@@ -23,11 +22,13 @@ public class GRTEncoder extends Sensor {
     public static final int KEY_STOPPED = 3;
     public static final int KEY_RPM = 4;
     
-    private long lastTimePolled = 0;
+    private long lastTimePolled = 0;    //FPGA time [us]
     private int lastCount = 0;
     
     public static final int NUM_DATA = 5;
-    private Vector encoderListeners;
+    private final ListenerList encoderListeners = new ListenerList(this);
+    private final EncoderEvent event = new EncoderEvent(this, 0, 0);
+    private final EncoderEvent asyncEvent = new EncoderEvent(this, 0, 0);
 
     /**
      * Instantiates an encoder on the default digital module.
@@ -62,7 +63,6 @@ public class GRTEncoder extends Sensor {
                 CounterBase.EncodingType.k1X);  
         rotaryEncoder.start();
 
-        encoderListeners = new Vector();
         distancePerPulse = pulseDistance;
         rotaryEncoder.setDistancePerPulse(distancePerPulse);
     }
@@ -103,7 +103,6 @@ public class GRTEncoder extends Sensor {
                 moduleNum, channelB, reversed);
         rotaryEncoder.start();
         
-        encoderListeners = new Vector();
         distancePerPulse = pulseDistance;
         rotaryEncoder.setDistancePerPulse(this.distancePerPulse);
     }
@@ -130,65 +129,93 @@ public class GRTEncoder extends Sensor {
     
     private double calcRPM(){
         
+        long now = getSampleTime();
+        
         if (lastTimePolled == 0){
-            lastTimePolled = System.currentTimeMillis();
+            lastTimePolled = now;
             lastCount = rotaryEncoder.get();
             
             return 0.0;
         }
         
-        long now = System.currentTimeMillis();
-        
-        double dt = now - lastTimePolled;
-        lastTimePolled = now;
-        
+        //the FPGA clock wraps, so take the difference rather than subtract
+        long dt = fpgaDelta(lastTimePolled, now);
         int newCount = rotaryEncoder.get();
         int dCount = newCount - lastCount;
-        
+        lastTimePolled = now;
         lastCount = newCount;
+        if (dt <= 0) {
+            return getState(KEY_RPM);
+        }
         
-        double rpms = (dCount / dt) * (1000 * 60) / 360.0;
+        double rpms = (dCount / (double) dt) * (1000000.0 * 60) / 360.0;
         
         return rpms;
     }
 
-    protected void notifyListeners(int id, double newDatum) {
-        EncoderEvent e = new EncoderEvent(this, id, newDatum);
+    protected void notifyListeners(int id, double newDatum, boolean async) {
+        Object[] snapshot = encoderListeners.getListeners(async);
+        EncoderEvent e;
+        if (reusesEvents()) {
+            e = async ? asyncEvent : event;
+            e.update(id, newDatum);
+        } else {
+            e = new EncoderEvent(this, id, newDatum);
+        }
             
         switch (id) {
             case KEY_DEGREES:
-                for (Enumeration en = encoderListeners.elements(); en.
-                        hasMoreElements();)
-                    ((EncoderListener) en.nextElement()).degreeChanged(e);
+                for (int i = 0; i < snapshot.length; i++) {
+                    long start = encoderListeners.startCall();
+                    ((EncoderListener) snapshot[i]).
+                            degreeChanged(e);
+                    encoderListeners.endCall(snapshot, i, start);
+                }
                 break;
             case KEY_DISTANCE:
-                for (Enumeration en = encoderListeners.elements(); en.
-                        hasMoreElements();)
-                    ((EncoderListener) en.nextElement()).distanceChanged(e);
+                for (int i = 0; i < snapshot.length; i++) {
+                    long start = encoderListeners.startCall();
+                    ((EncoderListener) snapshot[i]).
+                            distanceChanged(e);
+                    encoderListeners.endCall(snapshot, i, start);
+                }
                 break;
             case KEY_RPM:
-                for (Enumeration en = encoderListeners.elements(); en.
-                        hasMoreElements();)
-                    ((EncoderListener) en.nextElement()).rateChanged(e);
+                for (int i = 0; i < snapshot.length; i++) {
+                    long start = encoderListeners.startCall();
+                    ((EncoderListener) snapshot[i]).
+                            rateChanged(e);
+                    encoderListeners.endCall(snapshot, i, start);
+                }
                 break;
             case KEY_STOPPED:
                 if (newDatum == TRUE)
-                    for (Enumeration en = encoderListeners.elements(); en.
-                            hasMoreElements();)
-                        ((EncoderListener) en.nextElement()).rotationStopped(e);
+                    for (int i = 0; i < snapshot.length; i++) {
+                        long start = encoderListeners.startCall();
+                        ((EncoderListener) snapshot[i]).
+                                rotationStopped(e);
+                        encoderListeners.endCall(snapshot, i, start);
+                    }
                 else
-                    for (Enumeration en = encoderListeners.elements(); en.
-                            hasMoreElements();)
-                        ((EncoderListener) en.nextElement()).rotationStarted(e);
+                    for (int i = 0; i < snapshot.length; i++) {
+                        long start = encoderListeners.startCall();
+                        ((EncoderListener) snapshot[i]).
+                                rotationStarted(e);
+                        encoderListeners.endCall(snapshot, i, start);
+                    }
                 break;
         }
     }
 
     public void addListener(EncoderListener l) {
-        encoderListeners.addElement(l);
+        encoderListeners.add(l);
+    }
+
+    public void addListener(EncoderListener l, boolean async) {
+        encoderListeners.add(l, async);
     }
 
     public void removeListener(EncoderListener l) {
-        encoderListeners.removeElement(l);
+        encoderListeners.remove(l);
     }
 }
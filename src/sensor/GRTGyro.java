@@ -1,11 +1,10 @@
 package sensor;
 
+import core.ListenerList;
 import core.Sensor;
 import edu.wpi.first.wpilibj.Gyro;
 import event.events.GyroEvent;
 import event.listeners.GyroListener;
-import java.util.Enumeration;
-import java.util.Vector;
 
 /**
  * Provides angular position along a single axis through an analog sensor
@@ -17,7 +16,9 @@ public class GRTGyro extends Sensor {
     public static final int KEY_ANGLE = 0;
     public static final int NUM_DATA = 1;
     private Gyro gyro;
-    private Vector gyroListeners;
+    private final ListenerList gyroListeners = new ListenerList(this);
+    private final GyroEvent event = new GyroEvent(this, 0);
+    private final GyroEvent asyncEvent = new GyroEvent(this, 0);
 
     /**
      * Instantiates a new gyroscope on the default analog module.
@@ -28,7 +29,7 @@ public class GRTGyro extends Sensor {
     public GRTGyro(int channel, String name) {
         super(name, NUM_DATA);
         gyro = new Gyro(channel);
-        gyroListeners = new Vector();
+        setCoalescing(KEY_ANGLE, true);
     }
 
     /**
@@ -41,7 +42,7 @@ public class GRTGyro extends Sensor {
     public GRTGyro(int moduleNum, int channel, String name) {
         super(name, NUM_DATA);
         gyro = new Gyro(moduleNum, channel);
-        gyroListeners = new Vector();
+        setCoalescing(KEY_ANGLE, true);
     }
 
     /**
@@ -58,20 +59,34 @@ public class GRTGyro extends Sensor {
         setState(KEY_ANGLE, gyro.getAngle());
     }
 
-    protected void notifyListeners(int id, double newDatum) {
+    protected void notifyListeners(int id, double newDatum, boolean async) {
+        Object[] snapshot = gyroListeners.getListeners(async);
         if (id == KEY_ANGLE) {
-            GyroEvent e = new GyroEvent(this, newDatum);
-            for (Enumeration en = gyroListeners.elements(); en.hasMoreElements();)
-                ((GyroListener) en.nextElement()).angleChanged(e);
+            GyroEvent e;
+            if (reusesEvents()) {
+                e = async ? asyncEvent : event;
+                e.update(id, newDatum);
+            } else {
+                e = new GyroEvent(this, newDatum);
+            }
+            for (int i = 0; i < snapshot.length; i++) {
+                long start = gyroListeners.startCall();
+                ((GyroListener) snapshot[i]).angleChanged(e);
+                gyroListeners.endCall(snapshot, i, start);
+            }
         }
     }
 
     public void addListener(GyroListener l) {
-        gyroListeners.addElement(l);
+        gyroListeners.add(l);
+    }
+
+    public void addListener(GyroListener l, boolean async) {
+        gyroListeners.add(l, async);
     }
 
     public void removeListener(GyroListener l) {
-        gyroListeners.removeElement(l);
+        gyroListeners.remove(l);
     }
     
     /**
@@ -1,13 +1,12 @@
 package sensor;
 
+import core.ListenerList;
 import core.Sensor;
 import edu.wpi.first.wpilibj.Joystick;
 import event.events.ButtonEvent;
 import event.events.JoystickEvent;
 import event.listeners.ButtonListener;
 import event.listeners.GRTJoystickListener;
-import java.util.Enumeration;
-import java.util.Vector;
 
 /**
  * Wrapper class for a Logitech Attack 3 Joystick.
@@ -16,9 +15,13 @@ import java.util.Vector;
  */
 public class GRTJoystick extends Sensor {
 
-    private final Vector joystickListeners;
-    private final Vector buttonListeners;
+    private final ListenerList joystickListeners = new ListenerList(this);
+    private final ListenerList buttonListeners = new ListenerList(this);
     private final Joystick joystick;
+    private final ButtonEvent buttonEvent = new ButtonEvent(this, 0, false);
+    private final ButtonEvent asyncButtonEvent = new ButtonEvent(this, 0, false);
+    private final JoystickEvent joystickEvent = new JoystickEvent(this, 0, 0);
+    private final JoystickEvent asyncJoystickEvent = new JoystickEvent(this, 0, 0);
 
     public static final int KEY_BUTTON_TRIGGER = 1;
     public static final int KEY_BUTTON_2 = 2;
@@ -48,9 +51,9 @@ public class GRTJoystick extends Sensor {
         super(name, NUM_DATA);
         
         joystick = new Joystick(channel);
-        joystickListeners = new Vector();
-        buttonListeners = new Vector();
-
+        setCoalescing(KEY_X, true);
+        setCoalescing(KEY_Y, true);
+        setCoalescing(KEY_JOYSTICK_ANGLE, true);
     }
 
     protected void poll() {
@@ -61,59 +64,96 @@ public class GRTJoystick extends Sensor {
         setState(KEY_JOYSTICK_ANGLE, joystick.getDirectionRadians());
     }
 
-    protected void notifyListeners(int id, double newDatum) {
+    protected void notifyListeners(int id, double newDatum, boolean async) {
+        Object[] buttons = buttonListeners.getListeners(async);
+        Object[] joysticks = joystickListeners.getListeners(async);
         if (id < NUM_OF_BUTTONS) {
             //ID maps directly to button ID
-            ButtonEvent e = new ButtonEvent(this, id, newDatum == PRESSED);
+            ButtonEvent e = buttonEvent(id, newDatum, async);
             if (newDatum == PRESSED) //true
-                for (Enumeration en = buttonListeners.elements(); en.
-                        hasMoreElements();)
-                    ((ButtonListener) en.nextElement()).buttonPressed(e);
+                for (int i = 0; i < buttons.length; i++) {
+                    long start = buttonListeners.startCall();
+                    ((ButtonListener) buttons[i]).
+                            buttonPressed(e);
+                    buttonListeners.endCall(buttons, i, start);
+                }
             else
-                for (Enumeration en = buttonListeners.elements(); en.
-                        hasMoreElements();)
-                    ((ButtonListener) en.nextElement()).buttonReleased(e);
+                for (int i = 0; i < buttons.length; i++) {
+                    long start = buttonListeners.startCall();
+                    ((ButtonListener) buttons[i]).
+                            buttonReleased(e);
+                    buttonListeners.endCall(buttons, i, start);
+                }
 
         } else { //we are now a joystick
             //only reach here if not a button
-            JoystickEvent e =
-                    new JoystickEvent(this, id, newDatum);
+            JoystickEvent e = joystickEvent(id, newDatum, async);
             switch (id) {
                 case (KEY_X):
-                    for (Enumeration en = joystickListeners.elements(); en.
-                            hasMoreElements();)
-                        ((GRTJoystickListener) en.nextElement()).XAxisMoved(
-                                e);
+                    for (int i = 0; i < joysticks.length; i++) {
+                        long start = joystickListeners.startCall();
+                        ((GRTJoystickListener) joysticks[i]).
+                                XAxisMoved(e);
+                        joystickListeners.endCall(joysticks, i, start);
+                    }
                     break;
                 case (KEY_Y):
-                    for (Enumeration en = joystickListeners.elements(); en.
-                            hasMoreElements();)
-                        ((GRTJoystickListener) en.nextElement()).YAxisMoved(
-                                e);
+                    for (int i = 0; i < joysticks.length; i++) {
+                        long start = joystickListeners.startCall();
+                        ((GRTJoystickListener) joysticks[i]).
+                                YAxisMoved(e);
+                        joystickListeners.endCall(joysticks, i, start);
+                    }
                     break;
                 case (KEY_JOYSTICK_ANGLE):
-                    for (Enumeration en = joystickListeners.elements(); en.
-                            hasMoreElements();)
-                        ((GRTJoystickListener) en.nextElement()).
+                    for (int i = 0; i < joysticks.length; i++) {
+                        long start = joystickListeners.startCall();
+                        ((GRTJoystickListener) joysticks[i]).
                                 AngleChanged(e);
+                        joystickListeners.endCall(joysticks, i, start);
+                    }
                     break;
             }
         }
     }
 
+    private ButtonEvent buttonEvent(int id, double newDatum, boolean async) {
+        if (!reusesEvents())
+            return new ButtonEvent(this, id, newDatum == PRESSED);
+        ButtonEvent e = async ? asyncButtonEvent : buttonEvent;
+        e.update(id, newDatum);
+        return e;
+    }
+
+    private JoystickEvent joystickEvent(int id, double newDatum, boolean async) {
+        if (!reusesEvents())
+            return new JoystickEvent(this, id, newDatum);
+        JoystickEvent e = async ? asyncJoystickEvent : joystickEvent;
+        e.update(id, newDatum);
+        return e;
+    }
+
     public void addButtonListener(ButtonListener b) {
-        buttonListeners.addElement(b);
+        buttonListeners.add(b);
+    }
+
+    public void addButtonListener(ButtonListener b, boolean async) {
+        buttonListeners.add(b, async);
     }
 
     public void removeButtonListener(ButtonListener b) {
-        buttonListeners.removeElement(b);
+        buttonListeners.remove(b);
     }
 
     public void addJoystickListener(GRTJoystickListener l) {
-        joystickListeners.addElement(l);
+        joystickListeners.add(l);
+    }
+
+    public void addJoystickListener(GRTJoystickListener l, boolean async) {
+        joystickListeners.add(l, async);
     }
 
     public void removeJoystickListener(GRTJoystickListener l) {
-        joystickListeners.removeElement(l);
+        joystickListeners.remove(l);
     }
 }
@@ -1,11 +1,10 @@
 package sensor;
 
+import core.ListenerList;
 import core.Sensor;
 import edu.wpi.first.wpilibj.DigitalInput;
 import event.events.SwitchEvent;
 import event.listeners.SwitchListener;
-import java.util.Enumeration;
-import java.util.Vector;
 
 /**
  * Wrapper class for a switch. By default, switches are assumed to pull the
@@ -20,7 +19,9 @@ public class GRTSwitch extends Sensor {
     private static final int STATE = 0;
     private static final int NUM_DATA = 1;
     private final boolean reversed;
-    private Vector listeners;
+    private final ListenerList listeners = new ListenerList(this);
+    private final SwitchEvent event = new SwitchEvent(this, FALSE);
+    private final SwitchEvent asyncEvent = new SwitchEvent(this, FALSE);
 
     /**
      * Instantiates a new GRTSwitch.
@@ -35,7 +36,6 @@ public class GRTSwitch extends Sensor {
         super(name, NUM_DATA);
         in = new DigitalInput(moduleNum, channel);
         this.reversed = reversed;
-        listeners = new Vector();
     }
 
     /**
@@ -49,7 +49,6 @@ public class GRTSwitch extends Sensor {
         super(name, NUM_DATA);
         in = new DigitalInput(channel);
         this.reversed = reversed;
-        listeners = new Vector();
     }
 
     /**
@@ -66,19 +65,32 @@ public class GRTSwitch extends Sensor {
     }
 
     public void addListener(SwitchListener l) {
-        listeners.addElement(l);
+        listeners.add(l);
+    }
+
+    public void addListener(SwitchListener l, boolean async) {
+        listeners.add(l, async);
     }
 
     public void removeListener(SwitchListener l) {
-        listeners.removeElement(l);
+        listeners.remove(l);
     }
 
-    protected void notifyListeners(int id, double newDatum) {
+    protected void notifyListeners(int id, double newDatum, boolean async) {
+        Object[] snapshot = listeners.getListeners(async);
 
-        SwitchEvent e = new SwitchEvent(this, newDatum);
+        SwitchEvent e;
+        if (reusesEvents()) {
+            e = async ? asyncEvent : event;
+            e.update(id, newDatum);
+        } else {
+            e = new SwitchEvent(this, newDatum);
+        }
 
-        for (Enumeration en = listeners.elements(); en.hasMoreElements();) {
-            ((SwitchListener) en.nextElement()).switchStateChanged(e);
+        for (int i = 0; i < snapshot.length; i++) {
+            long start = listeners.startCall();
+            ((SwitchListener) snapshot[i]).switchStateChanged(e);
+            listeners.endCall(snapshot, i, start);
         }
     }
 }
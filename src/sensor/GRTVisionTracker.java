@@ -1,6 +1,7 @@
 package sensor;
 
 import core.GRTConstants;
+import core.ListenerList;
 import core.Sensor;
 import edu.wpi.first.wpilibj.camera.AxisCamera;
 import edu.wpi.first.wpilibj.camera.AxisCameraException;
@@ -11,8 +12,6 @@ import edu.wpi.first.wpilibj.image.LinearAverages;
 import edu.wpi.first.wpilibj.image.NIVision;
 import edu.wpi.first.wpilibj.image.NIVisionException;
 import edu.wpi.first.wpilibj.image.ParticleAnalysisReport;
-import java.util.Enumeration;
-import java.util.Vector;
 
 /**
  * A polling sensor that updates the state of the vision target's centroid in
@@ -66,7 +65,7 @@ public class GRTVisionTracker extends Sensor {
 
     private static final int SLEEP_TIME = 14;
 
-    private Vector listeners;   //VisionTrackerListeners
+    private final ListenerList listeners = new ListenerList(this);   //VisionTrackerListeners
 
     private class Scores {
         double rectangularity;
@@ -84,8 +83,6 @@ public class GRTVisionTracker extends Sensor {
         this.cc = new CriteriaCollection();      // create the criteria for the particle filter
         cc.addCriteria(NIVision.MeasurementType.IMAQ_MT_AREA, 500, 65535, false);
         X_IMAGE_RES = camera.getResolution().width;
-
-        listeners = new Vector();
     }
 
     protected void poll() {
@@ -108,7 +105,7 @@ public class GRTVisionTracker extends Sensor {
      * information.
      */
     public void updateTrackingData(){
-        poll();
+        update();
     }
     
     /**
@@ -137,7 +134,7 @@ public class GRTVisionTracker extends Sensor {
     
     //Required Sensor.notifyListeners method. Because all access will be done 
     //through public methods, we will leave this unimplemented.
-    protected void notifyListeners(int id, double newDatum) {
+    protected void notifyListeners(int id, double newDatum, boolean async) {
         //Unimplemented here.
     }
 
@@ -1,12 +1,12 @@
 package sensor;
 
+import core.ListenerList;
 import core.Sensor;
 import edu.wpi.first.wpilibj.Joystick;
 import event.events.ButtonEvent;
 import event.events.XboxJoystickEvent;
 import event.listeners.ButtonListener;
 import event.listeners.XboxJoystickListener;
-import java.util.Vector;
 
 /**
  *
@@ -42,17 +42,29 @@ public class GRTXboxJoystick extends Sensor {
     public static final double PRESSED = TRUE;
     public static final double RELEASED = FALSE;
     private final Joystick joystick;
-    private final Vector buttonListeners;
-    private final Vector joystickListeners;
+    private final ListenerList buttonListeners = new ListenerList(this);
+    private final ListenerList joystickListeners = new ListenerList(this);
+    private final ButtonEvent buttonEvent = new ButtonEvent(this, 0, false);
+    private final ButtonEvent asyncButtonEvent = new ButtonEvent(this, 0, false);
+    private final XboxJoystickEvent joystickEvent =
+            new XboxJoystickEvent(this, 0, 0);
+    private final XboxJoystickEvent asyncJoystickEvent =
+            new XboxJoystickEvent(this, 0, 0);
     
     private static final double DEAD_ZONE = 0.07;
 
     public GRTXboxJoystick(int channel, String name) {
         super(name, NUM_DATA);
         joystick = new Joystick(channel);
-
-        buttonListeners = new Vector();
-        joystickListeners = new Vector();
+        //only the latest position of an analog axis matters to a slow
+        //listener; the buttons and the pad are left out, since they are
+        //discrete and each press and release must be delivered
+        setCoalescing(KEY_LEFT_X, true);
+        setCoalescing(KEY_LEFT_Y, true);
+        setCoalescing(KEY_RIGHT_X, true);
+        setCoalescing(KEY_RIGHT_Y, true);
+        setCoalescing(KEY_JOYSTICK_ANGLE, true);
+        setCoalescing(KEY_TRIGGER, true);
     }
 
     protected void poll() {
@@ -82,66 +94,86 @@ public class GRTXboxJoystick extends Sensor {
         return negative ? -y : y;
     }
 
-    protected void notifyListeners(int id, double newDatum) {
+    protected void notifyListeners(int id, double newDatum, boolean async) {
+        Object[] buttons = buttonListeners.getListeners(async);
+        Object[] joysticks = joystickListeners.getListeners(async);
         if (id <= NUM_OF_BUTTONS) {
             //ID maps directly to button ID
-            ButtonEvent e = new ButtonEvent(this, id, newDatum == PRESSED);
+            ButtonEvent e = buttonEvent(id, newDatum, async);
             if (newDatum == PRESSED) { //true
-                for (int i = 0; i < buttonListeners.size(); i++) {
-                    ((ButtonListener) buttonListeners.elementAt(i)).buttonPressed(e);
+                for (int i = 0; i < buttons.length; i++) {
+                    long start = buttonListeners.startCall();
+                    ((ButtonListener) buttons[i]).buttonPressed(e);
+                    buttonListeners.endCall(buttons, i, start);
                 }
             } else {
-                for (int i = 0; i < buttonListeners.size(); i++) {
-                    ((ButtonListener) buttonListeners.elementAt(i)).buttonReleased(e);
+                for (int i = 0; i < buttons.length; i++) {
+                    long start = buttonListeners.startCall();
+                    ((ButtonListener) buttons[i]).buttonReleased(e);
+                    buttonListeners.endCall(buttons, i, start);
                 }
             }
 
         } else { //we are now a joystick
             //only reach here if not a button
-            XboxJoystickEvent e = new XboxJoystickEvent(this, id, newDatum);
+            XboxJoystickEvent e = joystickEvent(id, newDatum, async);
 
             //call various events based on which datum we are
             switch (id) {
                 case KEY_LEFT_X: {
-                    for (int i = 0; i < joystickListeners.size(); i++) {
-                        ((XboxJoystickListener) joystickListeners.elementAt(i)).leftXAxisMoved(e);
+                    for (int i = 0; i < joysticks.length; i++) {
+                        long start = joystickListeners.startCall();
+                        ((XboxJoystickListener) joysticks[i]).leftXAxisMoved(e);
+                        joystickListeners.endCall(joysticks, i, start);
                     }
 
                 }
                 case KEY_LEFT_Y: {
-                    for (int i = 0; i < joystickListeners.size(); i++) {
-                        ((XboxJoystickListener) joystickListeners.elementAt(i)).leftYAxisMoved(e);
+                    for (int i = 0; i < joysticks.length; i++) {
+                        long start = joystickListeners.startCall();
+                        ((XboxJoystickListener) joysticks[i]).leftYAxisMoved(e);
+                        joystickListeners.endCall(joysticks, i, start);
                     }
                     break;
                 }
                 case KEY_RIGHT_X: {
-                    for (int i = 0; i < joystickListeners.size(); i++) {
-                        ((XboxJoystickListener) joystickListeners.elementAt(i)).rightXAxisMoved(e);
+                    for (int i = 0; i < joysticks.length; i++) {
+                        long start = joystickListeners.startCall();
+                        ((XboxJoystickListener) joysticks[i]).rightXAxisMoved(e);
+                        joystickListeners.endCall(joysticks, i, start);
                     }
                     break;
                 }
                 case KEY_RIGHT_Y: {
-                    e = new XboxJoystickEvent(this, id, -newDatum); //account for xbox being fucking weird
-                    for (int i = 0; i < joystickListeners.size(); i++) {
-                        ((XboxJoystickListener) joystickListeners.elementAt(i)).rightYAxisMoved(e);
+                    e = joystickEvent(id, -newDatum, async); //account for xbox being fucking weird
+                    for (int i = 0; i < joysticks.length; i++) {
+                        long start = joystickListeners.startCall();
+                        ((XboxJoystickListener) joysticks[i]).rightYAxisMoved(e);
+                        joystickListeners.endCall(joysticks, i, start);
                     }
                     break;
                 }
                 case KEY_JOYSTICK_ANGLE: {
-                    for (int i = 0; i < joystickListeners.size(); i++) {
-                        ((XboxJoystickListener) joystickListeners.elementAt(i)).leftAngleChanged(e);
+                    for (int i = 0; i < joysticks.length; i++) {
+                        long start = joystickListeners.startCall();
+                        ((XboxJoystickListener) joysticks[i]).leftAngleChanged(e);
+                        joystickListeners.endCall(joysticks, i, start);
                     }
                     break;
                 }
                 case KEY_TRIGGER: {
-                    for (int i = 0; i < joystickListeners.size(); i++) {
-                        ((XboxJoystickListener) joystickListeners.elementAt(i)).triggerMoved(e);
+                    for (int i = 0; i < joysticks.length; i++) {
+                        long start = joystickListeners.startCall();
+                        ((XboxJoystickListener) joysticks[i]).triggerMoved(e);
+                        joystickListeners.endCall(joysticks, i, start);
                     }
                     break;
                 }
                 case KEY_PAD: {
-                    for (int i = 0; i < joystickListeners.size(); i++) {
-                        ((XboxJoystickListener) joystickListeners.elementAt(i)).padMoved(e);
+                    for (int i = 0; i < joysticks.length; i++) {
+                        long start = joystickListeners.startCall();
+                        ((XboxJoystickListener) joysticks[i]).padMoved(e);
+                        joystickListeners.endCall(joysticks, i, start);
                     }
                     break;
                 }
@@ -152,19 +184,43 @@ public class GRTXboxJoystick extends Sensor {
 
     }
 
+    private ButtonEvent buttonEvent(int id, double newDatum, boolean async) {
+        if (!reusesEvents())
+            return new ButtonEvent(this, id, newDatum == PRESSED);
+        ButtonEvent e = async ? asyncButtonEvent : buttonEvent;
+        e.update(id, newDatum);
+        return e;
+    }
+
+    private XboxJoystickEvent joystickEvent(int id, double newDatum, boolean async) {
+        if (!reusesEvents())
+            return new XboxJoystickEvent(this, id, newDatum);
+        XboxJoystickEvent e = async ? asyncJoystickEvent : joystickEvent;
+        e.update(id, newDatum);
+        return e;
+    }
+
     public void addButtonListener(ButtonListener b) {
-        buttonListeners.addElement(b);
+        buttonListeners.add(b);
+    }
+
+    public void addButtonListener(ButtonListener b, boolean async) {
+        buttonListeners.add(b, async);
     }
 
     public void removeButtonListener(ButtonListener b) {
-        buttonListeners.removeElement(b);
+        buttonListeners.remove(b);
     }
 
     public void addJoystickListener(XboxJoystickListener l) {
-        joystickListeners.addElement(l);
+        joystickListeners.add(l);
+    }
+
+    public void addJoystickListener(XboxJoystickListener l, boolean async) {
+        joystickListeners.add(l, async);
     }
 
     public void removeJoystickListener(XboxJoystickListener l) {
-        joystickListeners.removeElement(l);
+        joystickListeners.remove(l);
     }
 }
@@ -1,11 +1,10 @@
 package sensor;
 
+import core.ListenerList;
 import core.Sensor;
 import edu.wpi.first.wpilibj.AnalogChannel;
 import event.events.PotentiometerEvent;
 import event.listeners.PotentiometerListener;
-import java.util.Enumeration;
-import java.util.Vector;
 
 /**
  * Linear potentiometer on analog channel.
@@ -21,7 +20,9 @@ public class Potentiometer extends Sensor {
     public static final int KEY_VALUE = 0;
     public static final int NUM_DATA = 1;
     private AnalogChannel channel;
-    private Vector potentiometerListeners = new Vector();
+    private final ListenerList potentiometerListeners = new ListenerList(this);
+    private final PotentiometerEvent event = new PotentiometerEvent(this, 0);
+    private final PotentiometerEvent asyncEvent = new PotentiometerEvent(this, 0);
 
     /**
      * Instantiates a new potentiometer on the default analog channel.
@@ -32,6 +33,7 @@ public class Potentiometer extends Sensor {
     public Potentiometer(int channel, String name) {
         super(name, NUM_DATA);
         this.channel = new AnalogChannel(channel);
+        setCoalescing(KEY_VALUE, true);
     }
 
     /**
@@ -45,6 +47,7 @@ public class Potentiometer extends Sensor {
             String name) {
         super(name, NUM_DATA);
         this.channel = new AnalogChannel(channel);
+        setCoalescing(KEY_VALUE, true);
     }
 
     protected void poll() {
@@ -69,18 +72,32 @@ public class Potentiometer extends Sensor {
         return channel.getVoltage() / 5.0;
     }
 
-    protected void notifyListeners(int id, double newDatum) {
-        PotentiometerEvent e = new PotentiometerEvent(this, newDatum);
-        for (Enumeration en = potentiometerListeners.elements();
-                en.hasMoreElements();)
-            ((PotentiometerListener) en.nextElement()).valueChanged(e);
+    protected void notifyListeners(int id, double newDatum, boolean async) {
+        Object[] pots = potentiometerListeners.getListeners(async);
+        PotentiometerEvent e;
+        if (reusesEvents()) {
+            e = async ? asyncEvent : event;
+            e.update(id, newDatum);
+        } else {
+            e = new PotentiometerEvent(this, newDatum);
+        }
+        for (int i = 0; i < pots.length; i++) {
+            long start = potentiometerListeners.startCall();
+            ((PotentiometerListener) pots[i]).
+                    valueChanged(e);
+            potentiometerListeners.endCall(pots, i, start);
+        }
     }
 
     public void addListener(PotentiometerListener l) {
-        potentiometerListeners.addElement(l);
+        potentiometerListeners.add(l);
+    }
+
+    public void addListener(PotentiometerListener l, boolean async) {
+        potentiometerListeners.add(l, async);
     }
 
     public void removeListener(PotentiometerListener l) {
-        potentiometerListeners.removeElement(l);
+        potentiometerListeners.remove(l);
     }
 }